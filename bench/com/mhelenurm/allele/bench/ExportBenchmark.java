@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.bench;
+
+import com.mhelenurm.allele.model.Binomial;
+import com.mhelenurm.allele.model.SplitMixRandom;
+import com.mhelenurm.gui.MHGraph;
+import com.mhelenurm.gui.MHHistogram;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks the CSV exporters of MHGraph and MHHistogram, and the binary exporter of
+ * MHGraph.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ExportBenchmark {
+
+	@Param({"1000", "100000", "1000000"})
+	private int points;
+	private MHGraph graph;
+	private MHHistogram histogram;
+	private static final int COPIES = 20000; //2N for the largest population the GUI allows
+	private CountingWriter sink;
+	private CountingStream binarySink;
+
+	/**
+	 * Fills a graph with five Wright-Fisher trajectories and a histogram with the same number of
+	 * samples.
+	 */
+	@Setup
+	public void setup() {
+		SplitMixRandom rng = new SplitMixRandom(42);
+		graph = new MHGraph(MHGraph.GRAPH_LINE, 0, points, 0, 1.0, 10, 10, "Generation", "Allele Frequency", "Allele Frequency Over Time");
+		histogram = new MHHistogram(0.0, 1.0, 7, 100, 10, "Allele Frequency Histogram", "Allele Frequency");
+		sink = new CountingWriter();
+		binarySink = new CountingStream();
+		int counts[] = new int[5];
+		for (int id = 0; id < counts.length; id++) {
+			counts[id] = COPIES / 2;
+			graph.setDenominator((char) id, COPIES);
+		}
+		for (int i = 0; i < points; i++) {
+			int id = i % 5;
+			counts[id] = Binomial.sample(rng, COPIES, (double) counts[id] / COPIES);
+			if (counts[id] == 0 || counts[id] == COPIES) {
+				counts[id] = COPIES / 2; //start a new trajectory once one is absorbed
+			}
+			double y = (double) counts[id] / COPIES;
+			graph.addDataPoint(i / 5, y, (char) id);
+			histogram.addData(y);
+		}
+	}
+
+	/**
+	 * Exports every trajectory of the graph.
+	 *
+	 * @return The number of characters exported.
+	 * @throws IOException Never; the sink does not fail.
+	 */
+	@Benchmark
+	public long exportGraph() throws IOException {
+		sink.count = 0;
+		graph.exportCSV(sink);
+		return sink.count;
+	}
+
+	/**
+	 * Exports every trajectory of the graph in the binary format.
+	 *
+	 * @return The number of bytes exported.
+	 * @throws IOException Never; the sink does not fail.
+	 */
+	@Benchmark
+	public long exportGraphBinary() throws IOException {
+		binarySink.count = 0;
+		graph.exportBinary(binarySink);
+		return binarySink.count;
+	}
+
+	/**
+	 * Exports the histogram's bins.
+	 *
+	 * @return The number of characters exported.
+	 * @throws IOException Never; the sink does not fail.
+	 */
+	@Benchmark
+	public long exportHistogram() throws IOException {
+		sink.count = 0;
+		histogram.exportCSV(sink);
+		return sink.count;
+	}
+
+	/**
+	 * A writer that throws its input away, so only the exporter itself is measured.
+	 */
+	private static class CountingWriter extends Writer {
+
+		private long count;
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			count += len;
+		}
+
+		@Override
+		public void write(int c) {
+			count++;
+		}
+
+		@Override
+		public void write(String str, int off, int len) {
+			count += len;
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * A stream that throws its input away, so only the exporter itself is measured.
+	 */
+	private static class CountingStream extends OutputStream {
+
+		private long count;
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+	}
+}
\ No newline at end of file
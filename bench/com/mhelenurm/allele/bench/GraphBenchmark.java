@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.bench;
+
+import com.mhelenurm.allele.model.DriftMode;
+import com.mhelenurm.allele.model.Population;
+import com.mhelenurm.allele.model.SplitMixRandom;
+import com.mhelenurm.gui.MHGraph;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks painting an MHGraph, at the single-run window's size, into an off-screen
+ * image.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GraphBenchmark {
+
+	@Param({"1000", "10000", "100000", "1000000"})
+	private int points;
+	private MHGraph graph;
+	private BufferedImage image;
+	private Graphics2D g;
+	private Population population;
+
+	/**
+	 * Fills the graph with one trajectory of the requested length. The x axis leaves room for the
+	 * points paintNewPoint() adds.
+	 */
+	@Setup
+	public void setup() {
+		graph = new MHGraph(MHGraph.GRAPH_LINE, 0, 2 * points, 0, 1.0, 10, 10, "Generation", "Allele Frequency", "Allele Frequency Over Time");
+		graph.setSize(600, 300);
+		population = new Population(0.5, 100000, DriftMode.BINOMIAL, new SplitMixRandom(42));
+		for (int i = 0; i < points; i++) {
+			graph.addDataPoint(population.getGeneration(), population.getFrequency(), (char) 0);
+			population.advance(1);
+		}
+		image = new BufferedImage(600, 300, BufferedImage.TYPE_INT_RGB);
+		g = image.createGraphics();
+	}
+
+	/**
+	 * Releases the off-screen graphics context.
+	 */
+	@TearDown
+	public void tearDown() {
+		g.dispose();
+	}
+
+	/**
+	 * Paints the whole graph once.
+	 *
+	 * @return The image that was painted.
+	 */
+	@Benchmark
+	public BufferedImage paintComponent() {
+		graph.setXmin(0);
+		graph.setXmax(points);
+		graph.paintComponent(g);
+		return image;
+	}
+
+	/**
+	 * Adds one generation to the trajectory and repaints, as a live single run does every frame.
+	 * Only the new segment is drawn; the rest comes from the graph's back buffer.
+	 *
+	 * @return The image that was painted.
+	 */
+	@Benchmark
+	public BufferedImage paintNewPoint() {
+		graph.addDataPoint(population.getGeneration(), population.getFrequency(), (char) 0);
+		population.advance(1);
+		graph.paintComponent(g);
+		return image;
+	}
+
+	/**
+	 * Paints the graph zoomed in on a hundredth of the trajectory.
+	 *
+	 * @return The image that was painted.
+	 */
+	@Benchmark
+	public BufferedImage paintZoomed() {
+		graph.setXmin(points / 2);
+		graph.setXmax(points / 2 + Math.max(1, points / 100));
+		graph.paintComponent(g);
+		return image;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.bench;
+
+import com.mhelenurm.allele.model.SplitMixRandom;
+import com.mhelenurm.gui.MHHistogram;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks MHHistogram.addData with the bin layout the multi-run window uses.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class HistogramBenchmark {
+
+	private static final int SAMPLES = 4096;
+	private MHHistogram histogram;
+	private double data[];
+
+	/**
+	 * Builds the histogram and a fixed set of samples, a sixth of them on the bounds.
+	 */
+	@Setup
+	public void setup() {
+		histogram = new MHHistogram(0.0, 1.0, 7, 100, 10, "Allele Frequency Histogram", "Allele Frequency");
+		histogram.setUpperBoundSeparate(true);
+		histogram.setLowerBoundSeparate(true);
+		SplitMixRandom rng = new SplitMixRandom(42);
+		data = new double[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			data[i] = (i % 6 == 0) ? (double) (i % 2) : rng.nextDouble();
+		}
+	}
+
+	/**
+	 * Adds every sample to the histogram.
+	 *
+	 * @return The histogram.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public MHHistogram addData() {
+		for (int i = 0; i < SAMPLES; i++) {
+			histogram.addData(data[i]);
+		}
+		return histogram;
+	}
+}
\ No newline at end of file
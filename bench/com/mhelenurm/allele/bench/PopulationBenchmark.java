@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.bench;
+
+import com.mhelenurm.allele.model.DriftMode;
+import com.mhelenurm.allele.model.Population;
+import com.mhelenurm.allele.model.RandomSource;
+import com.mhelenurm.allele.model.SplitMixRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks the Population model: a whole replicate across population sizes and run
+ * lengths, and the cost of building a Population.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PopulationBenchmark {
+
+	@Param({"100", "1000", "10000"})
+	private int population;
+	@Param({"10", "100", "1000"})
+	private int generations;
+	@Param({"BINOMIAL", "PER_GENE_COPY", "INDIVIDUAL"})
+	private DriftMode driftMode;
+	private RandomSource rng;
+
+	/**
+	 * Seeds the random source so every trial does the same work.
+	 */
+	@Setup
+	public void setup() {
+		rng = new SplitMixRandom(42);
+	}
+
+	/**
+	 * Runs one replicate from the initial frequency to the last generation.
+	 *
+	 * @return The final frequency.
+	 */
+	@Benchmark
+	public double advance() {
+		Population p = new Population(0.5, population, driftMode, rng);
+		p.advance(generations);
+		return p.getFrequency();
+	}
+
+	/**
+	 * Builds a Population without advancing it.
+	 *
+	 * @return The new population.
+	 */
+	@Benchmark
+	public Population construct() {
+		return new Population(0.5, population, driftMode, rng);
+	}
+}
\ No newline at end of file
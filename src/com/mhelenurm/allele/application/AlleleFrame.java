@@ -10,11 +10,27 @@
  */
 package com.mhelenurm.allele.application;
 
+import com.mhelenurm.allele.metrics.GenerationBatchEvent;
+import com.mhelenurm.allele.metrics.Metrics;
+import com.mhelenurm.allele.metrics.ReplicateChunkEvent;
+import com.mhelenurm.allele.model.AbsorptionStats;
+import com.mhelenurm.allele.model.BinaryExport;
 import com.mhelenurm.allele.model.CSVExport;
-import com.mhelenurm.allele.model.DataPoint;
+import com.mhelenurm.allele.model.ConcurrentHistogram;
+import com.mhelenurm.allele.model.DriftMode;
+import com.mhelenurm.allele.model.ExactDistribution;
+import com.mhelenurm.allele.model.MultiRunEngine;
 import com.mhelenurm.allele.model.OutputUtil;
 import com.mhelenurm.allele.model.Population;
+import com.mhelenurm.allele.model.QuantileSketch;
+import com.mhelenurm.allele.model.RandomSources;
+import com.mhelenurm.allele.model.ReplicateResult;
+import com.mhelenurm.allele.model.ReplicateSummary;
+import com.mhelenurm.allele.model.RunningStats;
 import com.mhelenurm.allele.model.RunType;
+import com.mhelenurm.allele.model.SplitMixRandom;
+import com.mhelenurm.allele.model.TrajectoryReader;
+import com.mhelenurm.allele.model.TrajectoryStore;
 import com.mhelenurm.gui.MHBubble;
 import com.mhelenurm.gui.MHGraph;
 import com.mhelenurm.gui.MHHistogram;
@@ -23,14 +39,27 @@ import java.awt.Component;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
+import javax.swing.SwingWorker;
 import javax.swing.Timer;
 
 /**
@@ -45,9 +74,16 @@ public class AlleleFrame extends JFrame implements ActionListener {
 	private static final Logger LOG = Logger.getLogger(AlleleFrame.class.getName());
 	private static final String multiRunName = "Multi-Run";
 	private static final String singleRunName = "Single Run";
+	private static final String exactRunName = "Exact Distribution";
+	private static final double exactTolerance = 1e-12; //probability mass each generation may drop
+	private static final int exactScale = 1000000; //hits shown per unit of probability
 	private static int singleRunGenerationCount = 50;
-	private static final int singleRunDelay = 100;
-	private static final int multiRunDelay = 20;
+	private static final int singleRunDelay = 100; //pause between animation steps, unless running as fast as possible
+	private static final int singleRunTicks = 200; //a long single run is animated in this many steps
+	private static final int maxGenerations = 100000000;
+	private static final int maxExactGenerations = 100000; //every exact generation steps the whole distribution
+	private static final int frameRate = Integer.getInteger("allele.frameRate", 60); //most repaints per second
+	private static final int frameDelay = 1000 / Math.max(1, frameRate);
 	private static int multiRunCount = 100;
 	private static final long serialVersionUID = 1L;
 	private final int initialFrameWidth = 900;
@@ -69,16 +105,33 @@ public class AlleleFrame extends JFrame implements ActionListener {
 	private JComboBox runTypeComboBox;
 	private MHHistogram multiRunHist;
 	private MHHistogram multiRunHetHist;
+	private long multiRunHits[]; //the counts the engine's workers binned for the results drained in a frame
+	private long multiRunHetHits[];
 	private JLabel multiRunCtLabel;
+	private JLabel multiRunAbsorptionLabel;
+	private AbsorptionStats multiRunAbsorption;
+	private JLabel multiRunSummaryLabel;
+	private ReplicateSummary multiRunSummary = new ReplicateSummary(); //everything in the histograms
 	private JButton resetButton;
 	private Population singleRunPopulation;
+	private SwingWorker<Void, Void> singleWorker;
+	private volatile double singleRunLevel; //the frequency the simulation thread last reached
+	private int singleRunPainted; //the generations stored when the last frame was painted
+	private JCheckBox fastCheckBox;
+	private MultiRunEngine multiRunEngine;
+	private ArrayList<ReplicateResult> multiRunResults;
+	private SwingWorker<ExactDistribution, Integer> exactWorker;
+	private double multiRunFrequencies[];
+	private double multiRunHeterozygosities[];
 	private Timer animationTimer;
 	private RunType runningMode;
 	private boolean inRun;
 	private JButton runButton;
 	private char currentDataFlavor;
+	private TrajectoryStore singleRunStores[] = new TrajectoryStore[5]; //one per data flavor
 	private JMenuBar defaultMenuBar;
 	private JMenu exportMenu;
+	private JMenu importMenu;
 
 	/**
 	 * Initializes AlleleFrame.
@@ -97,10 +150,17 @@ public class AlleleFrame extends JFrame implements ActionListener {
 		setJMenuBar(defaultMenuBar);
 		exportMenu = new JMenu("Export");
 		defaultMenuBar.add(exportMenu);
+		importMenu = new JMenu("Import");
+		defaultMenuBar.add(importMenu);
 
 		runningMode = RunType.SINGLE_RUN;
 		inRun = false;
 
+		multiRunEngine = new MultiRunEngine();
+		multiRunResults = new ArrayList<ReplicateResult>();
+		multiRunFrequencies = new double[multiRunCount];
+		multiRunHeterozygosities = new double[multiRunCount];
+
 		singleRunGraph = new MHGraph(MHGraph.GRAPH_LINE, 0, singleRunGenerationCount, 0, 1.0, 10, 10, "Generation", "Allele Frequency", "Allele Frequency Over Time");
 		singleRunGraph.setSize(600, 300);
 		singleRunGraph.setLocation(300, 0);
@@ -123,6 +183,9 @@ public class AlleleFrame extends JFrame implements ActionListener {
 		multiRunHetHist.setSize(600, 300);
 		multiRunHetHist.setLocation(300, 300);
 		getContentPane().add(multiRunHetHist);
+		multiRunHits = new long[multiRunHist.getBins().getDivisions()];
+		multiRunHetHits = new long[multiRunHetHist.getBins().getDivisions()];
+		multiRunEngine.setHistograms(new ConcurrentHistogram(multiRunHist.getBins()), new ConcurrentHistogram(multiRunHetHist.getBins()));
 
 		multiRunCtLabel = new JLabel("Number of Runs: 0");
 		multiRunCtLabel.setSize(280, 50);
@@ -130,11 +193,28 @@ public class AlleleFrame extends JFrame implements ActionListener {
 		multiRunCtLabel.setHorizontalTextPosition(JLabel.CENTER);
 		getContentPane().add(multiRunCtLabel);
 
+		multiRunAbsorptionLabel = new JLabel();
+		multiRunAbsorptionLabel.setSize(280, 50);
+		multiRunAbsorptionLabel.setLocation(10, 60);
+		getContentPane().add(multiRunAbsorptionLabel);
+
+		multiRunSummaryLabel = new JLabel();
+		multiRunSummaryLabel.setSize(280, 180);
+		multiRunSummaryLabel.setLocation(10, 115);
+		multiRunSummaryLabel.setVerticalAlignment(JLabel.TOP);
+		getContentPane().add(multiRunSummaryLabel);
+
 		singleRunBubble = new MHBubble(.5, "Allele Frequency");
 		singleRunBubble.setSize(210, 210);
 		singleRunBubble.setLocation(45, 45);
 		getContentPane().add(singleRunBubble);
 
+		fastCheckBox = new JCheckBox("As fast as possible");
+		fastCheckBox.setSize(280, 30);
+		fastCheckBox.setLocation(10, 270);
+		fastCheckBox.setFocusable(false);
+		getContentPane().add(fastCheckBox);
+
 		runButton = new JButton("Run!");
 		runButton.setSize(280, 50);
 		runButton.setLocation(10, 310);
@@ -173,13 +253,13 @@ public class AlleleFrame extends JFrame implements ActionListener {
 		singleRunGenLabel.setLocation(10, 510);
 		getContentPane().add(singleRunGenLabel);
 
-		generationField = new MHRangedField(0, 10000, 50);
+		generationField = new MHRangedField(0, maxGenerations, 50);
 		generationField.setSize(80, 30);
 		generationField.setLocation(210, 510);
 		getContentPane().add(generationField);
 
 
-		runTypeComboBox = new JComboBox(new String[]{singleRunName, multiRunName});
+		runTypeComboBox = new JComboBox(new String[]{singleRunName, multiRunName, exactRunName});
 		runTypeComboBox.setSize(200, 50);
 		runTypeComboBox.setLocation(50, 540);
 		runTypeComboBox.setFocusable(false);
@@ -200,8 +280,10 @@ public class AlleleFrame extends JFrame implements ActionListener {
 
 				if (runningMode == RunType.SINGLE_RUN) {
 					singleRun();
-				} else {
+				} else if (runningMode == RunType.MULTI_RUN) {
 					multiRun();
+				} else {
+					exactRun();
 				}
 
 			}
@@ -210,23 +292,19 @@ public class AlleleFrame extends JFrame implements ActionListener {
 			@Override
 			public void actionPerformed(ActionEvent e) {
 				if (inRun) {
-					animationTimer.stop();
-					runButton.setEnabled(true);
-					inRun = false;
+					stopRun();
 				} else {
 
 					if (runningMode == RunType.SINGLE_RUN) {
 						singleRunGraph.clearPoints(-1);
 						singleRunHetGraph.clearPoints(-1);
+						for (int i = 0; i < singleRunStores.length; i++) {
+							closeStore(i);
+						}
 						singleRunBubble.setLevel(Double.parseDouble(frequencyField.getText()));
 						currentDataFlavor = 4;
 					} else {
-						multiRunTotalCount = 0;
-						multiRunHist.clear();
-						multiRunHist.setMaxHits(100);
-						multiRunHetHist.clear();
-						multiRunHetHist.setMaxHits(100);
-						multiRunCtLabel.setText("Number of Runs: 0");
+						clearMultiRun();
 					}
 				}
 				repaint();
@@ -239,11 +317,29 @@ public class AlleleFrame extends JFrame implements ActionListener {
 				exportable.addActionListener(new ActionListener() {
 					@Override
 					public void actionPerformed(ActionEvent e) {
-						OutputUtil.writeToFile(((CSVExport) c).exportCSV().toString());
+						OutputUtil.writeToFile((CSVExport) c);
 					}
 				});
 				exportMenu.add(exportable);
 			}
+			if (c instanceof BinaryExport) {
+				JMenuItem exportable = new JMenuItem(new StringBuilder("Binary ").append(((BinaryExport) c).getExportName()).toString());
+				exportable.addActionListener(new ActionListener() {
+					@Override
+					public void actionPerformed(ActionEvent e) {
+						OutputUtil.writeBinaryToFile((BinaryExport) c);
+					}
+				});
+				exportMenu.add(exportable);
+				JMenuItem importable = new JMenuItem(new StringBuilder("Binary ").append(((BinaryExport) c).getExportName()).toString());
+				importable.addActionListener(new ActionListener() {
+					@Override
+					public void actionPerformed(ActionEvent e) {
+						importTrajectories((BinaryExport) c);
+					}
+				});
+				importMenu.add(importable);
+			}
 		}
 		setGUI(RunType.SINGLE_RUN);
 	}
@@ -257,12 +353,17 @@ public class AlleleFrame extends JFrame implements ActionListener {
 		singleRunGraph.setVisible(single);
 		singleRunHetGraph.setVisible(single);
 		singleRunBubble.setVisible(single);
+		fastCheckBox.setVisible(single);
 		multiRunHist.setVisible(!single);
 		multiRunHetHist.setVisible(!single);
 		multiRunCtLabel.setVisible(!single);
+		multiRunAbsorptionLabel.setVisible(!single);
+		multiRunSummaryLabel.setVisible(!single);
 
 		//if multi run, hide single-run shit
-		for (Component c : exportMenu.getMenuComponents()) { //for each menu item, check if it should be shown
+		List<Component> items = new ArrayList<Component>(Arrays.asList(exportMenu.getMenuComponents()));
+		items.addAll(Arrays.asList(importMenu.getMenuComponents()));
+		for (Component c : items) { //for each menu item, check if it should be shown
 			Component[] comps = this.getContentPane().getComponents();
 			for (Component cc : comps) {
 				if (cc instanceof CSVExport) { //for each exportable item
@@ -288,29 +389,51 @@ public class AlleleFrame extends JFrame implements ActionListener {
 	public void actionPerformed(ActionEvent e) {
 		if (e.getSource() == runTypeComboBox) {
 			if (inRun) {
-				animationTimer.stop();
-				runButton.setEnabled(true);
-				inRun = false;
+				stopRun();
 			}
 			if (runTypeComboBox.getSelectedIndex() == 0) {
 				if (runningMode != RunType.SINGLE_RUN) {
 					setGUI(RunType.SINGLE_RUN);
 				}
-			} else {
+			} else if (runTypeComboBox.getSelectedIndex() == 1) {
 				if (runningMode != RunType.MULTI_RUN) {
 					setGUI(RunType.MULTI_RUN);
 				}
+			} else {
+				if (runningMode != RunType.EXACT_DISTRIBUTION) {
+					setGUI(RunType.EXACT_DISTRIBUTION);
+				}
 			}
 			return;
 		}
 
 		if (runningMode == RunType.SINGLE_RUN) {
-			singleStep();
+			singleFrame();
 		} else {
 			multiStep();
 		}
 	}
 
+	/**
+	 * Stops whatever run is in progress.
+	 */
+	private void stopRun() {
+		if (animationTimer != null) {
+			animationTimer.stop();
+		}
+		multiRunEngine.cancel();
+		if (singleWorker != null) {
+			singleWorker.cancel(false); //an interrupt could close the store's channel in the middle of a mapping
+			singleWorker = null;
+		}
+		if (exactWorker != null) {
+			exactWorker.cancel(true);
+			exactWorker = null;
+		}
+		runButton.setEnabled(true);
+		inRun = false;
+	}
+
 	/**
 	 * Starts the single-run simulation if possible.
 	 */
@@ -342,7 +465,9 @@ public class AlleleFrame extends JFrame implements ActionListener {
 		if (canContinue) {
 			currentDataFlavor = (char) ((currentDataFlavor + 1) % 5);
 
-			singleRunPopulation = new Population(singleP, singlePop);
+			//the run gets its own stream, so the worker's draws can be counted
+			SplitMixRandom rng = new SplitMixRandom(RandomSources.current().nextLong());
+			singleRunPopulation = new Population(singleP, singlePop, DriftMode.BINOMIAL, rng);
 
 			singleRunGenerationCount = singleGen;
 
@@ -350,16 +475,28 @@ public class AlleleFrame extends JFrame implements ActionListener {
 			singleRunGraph.setXmax(singleRunGenerationCount);
 			singleRunHetGraph.setXmax(singleRunGenerationCount);
 
-			singleRunGraph.clearPoints(currentDataFlavor);
-			singleRunHetGraph.clearPoints(currentDataFlavor);
-
-			DataPoint graph1dp = new DataPoint(singleRunPopulation.getGeneration(), singleRunPopulation.getFrequency(), currentDataFlavor);
-			DataPoint graph2dp = new DataPoint(singleRunPopulation.getGeneration(), singleRunPopulation.getHeterozygosity(), currentDataFlavor);
-			singleRunGraph.addDataPoint(graph1dp);
-			singleRunHetGraph.addDataPoint(graph2dp);
+			closeStore(currentDataFlavor);
+			TrajectoryStore store;
+			try {
+				store = new TrajectoryStore();
+				store.append(singleRunPopulation.getGeneration(), singleRunPopulation.getFrequency(), singleRunPopulation.getHeterozygosity());
+			} catch (IOException e) {
+				LOG.log(Level.WARNING, "Could not create the trajectory store", e);
+				runButton.setEnabled(true);
+				inRun = false;
+				return;
+			}
+			singleRunStores[currentDataFlavor] = store;
+			singleRunGraph.setDenominator(currentDataFlavor, 2L * singlePop); //frequencies are counts out of 2N
+			singleRunHetGraph.setDenominator(currentDataFlavor, 2L * singlePop * singlePop); //2pq is a whole number out of 2N^2
+			singleRunGraph.setSeries(currentDataFlavor, store.getFrequencySeries());
+			singleRunHetGraph.setSeries(currentDataFlavor, store.getHeterozygositySeries());
 			singleRunBubble.setLevel(singleRunPopulation.getFrequency());
+			singleRunLevel = singleRunPopulation.getFrequency();
+			singleRunPainted = store.size();
 
-			animationTimer = new Timer(singleRunDelay, this);
+			startSingleWorker(singleRunPopulation, rng, store, fastCheckBox.isSelected());
+			animationTimer = new Timer(frameDelay, this);
 			animationTimer.start();
 		} else {
 			runButton.setEnabled(true);
@@ -367,6 +504,54 @@ public class AlleleFrame extends JFrame implements ActionListener {
 		}
 	}
 
+	/**
+	 * Asks the user for a file and imports it into a single-run graph. The stores of the data flavors
+	 * in the file are closed first, since the graphs draw those flavors from stores they do not own.
+	 *
+	 * @param graph The graph to import into.
+	 */
+	private void importTrajectories(BinaryExport graph) {
+		JFileChooser fc = new JFileChooser();
+		if (fc.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+			return;
+		}
+		File file = fc.getSelectedFile();
+		try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+			TrajectoryReader reader = new TrajectoryReader(in);
+			while (reader.nextSeries()) {
+				int flavor = reader.getSeriesId();
+				if (flavor < singleRunStores.length) {
+					closeStore(flavor);
+				}
+			}
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Could not import " + graph.getExportName(), e);
+			return;
+		}
+		OutputUtil.readBinaryFromFile(file, graph);
+		repaint();
+	}
+
+	/**
+	 * Detaches and closes the trajectory store of a data flavor, if it has one.
+	 *
+	 * @param flavor The data flavor.
+	 */
+	private void closeStore(int flavor) {
+		TrajectoryStore store = singleRunStores[flavor];
+		if (store == null) {
+			return;
+		}
+		singleRunStores[flavor] = null;
+		singleRunGraph.clearPoints(flavor);
+		singleRunHetGraph.clearPoints(flavor);
+		try {
+			store.close();
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Could not close the trajectory store", e);
+		}
+	}
+
 	/**
 	 * Starts the multi-run simulation if possible.
 	 */
@@ -396,7 +581,13 @@ public class AlleleFrame extends JFrame implements ActionListener {
 
 		if (canContinue) {
 			multiRunGenCount = 0;
-			animationTimer = new Timer(multiRunDelay, this);
+			if (multiRunAbsorption == null || multiRunAbsorption.getGenerations() != Math.max(multiRunGenerations, 1)) {
+				//replicates of a different length do not belong with the ones shown, so start over
+				clearMultiRun();
+				multiRunAbsorption = new AbsorptionStats(multiRunGenerations, 20);
+			}
+			multiRunEngine.start(multiRunFrequency, multiRunPopulation, multiRunGenerations, multiRunCount, System.nanoTime());
+			animationTimer = new Timer(frameDelay, this);
 			animationTimer.start();
 		} else {
 			runButton.setEnabled(true);
@@ -405,50 +596,258 @@ public class AlleleFrame extends JFrame implements ActionListener {
 	}
 
 	/**
-	 * Represents a step in multi-run mode.
+	 * Forgets every multi-run replicate: the histograms, the absorption statistics, the summary
+	 * and the count, together, so what is shown always describes one set of replicates.
 	 */
-	private void multiStep() {
-		multiRunGenCount++;
-		if (multiRunGenCount >= multiRunCount) {
+	private void clearMultiRun() {
+		multiRunTotalCount = 0;
+		multiRunHist.clear();
+		multiRunHist.setMaxHits(100);
+		multiRunHetHist.clear();
+		multiRunHetHist.setMaxHits(100);
+		multiRunCtLabel.setText("Number of Runs: 0");
+		multiRunAbsorption = null;
+		multiRunAbsorptionLabel.setText("");
+		multiRunSummary.clear();
+		multiRunSummaryLabel.setText("");
+	}
+
+	/**
+	 * Starts computing the exact distribution if possible. The computation runs on a background
+	 * thread and fills the multi-run histograms when it finishes. It is limited to far fewer
+	 * generations than a simulation, since each one costs as much as a generation of 2N + 1 replicates.
+	 */
+	private void exactRun() {
+		boolean canContinue = frequencyField.inRange();
+		canContinue &= populationField.inRange();
+		canContinue &= generationField.inRange();
+		if (canContinue && generationField.getValue() > maxExactGenerations) {
+			multiRunCtLabel.setText("Exact Distribution: at most " + maxExactGenerations + " generations");
+			canContinue = false;
+		}
+		if (!canContinue) {
 			runButton.setEnabled(true);
-			animationTimer.stop();
 			inRun = false;
+			return;
 		}
-		multiRunTotalCount++;
-		Population test = new Population(multiRunFrequency, multiRunPopulation);
-		test.advance(multiRunGenerations);
 
-		multiRunHist.addData(test.getFrequency());
-		multiRunHetHist.addData(test.getHeterozygosity());
+		final double frequency = frequencyField.getValue();
+		final int population = (int) populationField.getValue();
+		final int generations = (int) generationField.getValue();
+		multiRunCtLabel.setText("Exact Distribution: generation 0 of " + generations);
+		multiRunAbsorptionLabel.setText("");
+		exactWorker = new SwingWorker<ExactDistribution, Integer>() {
+			@Override
+			protected ExactDistribution doInBackground() throws Exception {
+				ExactDistribution distribution = new ExactDistribution(frequency, population, exactTolerance);
+				try {
+					for (int g = 0; g < generations && !isCancelled(); g++) {
+						distribution.advance(1);
+						publish(distribution.getGeneration());
+					}
+				} finally {
+					distribution.shutdown();
+				}
+				return distribution;
+			}
+
+			@Override
+			protected void process(List<Integer> chunks) {
+				if (exactWorker == this) {
+					multiRunCtLabel.setText("Exact Distribution: generation " + chunks.get(chunks.size() - 1) + " of " + generations);
+				}
+			}
 
+			@Override
+			protected void done() {
+				if (isCancelled() || exactWorker != this) {
+					return;
+				}
+				exactWorker = null;
+				runButton.setEnabled(true);
+				inRun = false;
+				try {
+					showExactDistribution(get(), generations);
+				} catch (InterruptedException | ExecutionException e) {
+					LOG.log(Level.WARNING, "Exact distribution failed", e);
+					multiRunCtLabel.setText("Exact Distribution failed");
+				}
+			}
+		};
+		exactWorker.execute();
+	}
+
+	/**
+	 * Replaces the histograms' contents with an exact distribution.
+	 *
+	 * @param distribution The finished distribution.
+	 * @param generations The number of generations it was advanced.
+	 */
+	private void showExactDistribution(ExactDistribution distribution, int generations) {
+		clearMultiRun();
+		multiRunHist.addCounts(toHits(distribution.binFrequencies(multiRunHist.getBins())), exactScale);
+		multiRunHetHist.addCounts(toHits(distribution.binHeterozygosities(multiRunHetHist.getBins())), exactScale);
+
+		multiRunCtLabel.setText("Exact Distribution after " + generations + " generations");
+		multiRunAbsorptionLabel.setText(String.format("<html>Fixed: %.3f%%<br>Lost: %.3f%% (error below %.1e)</html>",
+				100.0 * distribution.getFixationProbability(), 100.0 * distribution.getLossProbability(), distribution.getErrorBound()));
 		multiRunHist.repaint();
 		multiRunHetHist.repaint();
+	}
 
-		multiRunCtLabel.setText("Number of Runs: " + multiRunTotalCount);
+	private static long[] toHits(double probabilities[]) {
+		long hits[] = new long[probabilities.length];
+		for (int i = 0; i < probabilities.length; i++) {
+			hits[i] = Math.round(probabilities[i] * exactScale);
+		}
+		return hits;
 	}
 
 	/**
-	 * Represents a single step in single-run mode.
+	 * Represents a frame in multi-run mode. The replicates run on the engine's worker threads; each
+	 * frame collects every result that finished since the last one and repaints once, and only if
+	 * there was something new.
 	 */
-	private void singleStep() {
-		if (singleRunPopulation.getGeneration() == singleRunGenerationCount || singleRunPopulation.getFrequency() == 1.0 || singleRunPopulation.getFrequency() == 0.0) {
+	private void multiStep() {
+		boolean finished = multiRunEngine.isFinished();
+		multiRunResults.clear();
+		Arrays.fill(multiRunHits, 0);
+		Arrays.fill(multiRunHetHits, 0);
+		multiRunEngine.drainTo(multiRunResults, multiRunHits, multiRunHetHits);
+		if (finished && !multiRunEngine.hasResults()) {
 			runButton.setEnabled(true);
 			animationTimer.stop();
 			inRun = false;
+		}
+		if (multiRunResults.isEmpty()) {
 			return;
 		}
+		multiRunGenCount += multiRunResults.size();
+		multiRunTotalCount += multiRunResults.size();
+		int n = multiRunResults.size();
+		if (multiRunFrequencies.length < n) {
+			multiRunFrequencies = new double[n];
+			multiRunHeterozygosities = new double[n];
+		}
+		for (int i = 0; i < n; i++) {
+			multiRunFrequencies[i] = multiRunResults.get(i).getFrequency();
+			multiRunHeterozygosities[i] = multiRunResults.get(i).getHeterozygosity();
+			multiRunAbsorption.add(multiRunResults.get(i));
+		}
+		multiRunHist.addCounts(multiRunHits, n);
+		multiRunHetHist.addCounts(multiRunHetHits, n);
+		multiRunSummary.add(multiRunFrequencies, multiRunHeterozygosities, 0, n);
+
+		multiRunHist.repaint();
+		multiRunHetHist.repaint();
 
-		singleRunPopulation.advance(1);
+		multiRunCtLabel.setText("Number of Runs: " + multiRunTotalCount);
+		multiRunAbsorptionLabel.setText(String.format("<html>Fixed: %.1f%% (mean generation %.1f)<br>Lost: %.1f%% (mean generation %.1f)</html>",
+				100.0 * multiRunAbsorption.getFixationProbability(), multiRunAbsorption.getMeanFixationTime(),
+				100.0 * multiRunAbsorption.getLossProbability(), multiRunAbsorption.getMeanLossTime()));
+		multiRunSummaryLabel.setText("<html>" + describe("Frequency", multiRunSummary.getFrequencyStats(), multiRunSummary.getFrequencyQuantiles())
+				+ "<br><br>" + describe("Heterozygosity", multiRunSummary.getHeterozygosityStats(), multiRunSummary.getHeterozygosityQuantiles()) + "</html>");
+	}
+
+	/**
+	 * Formats the summary of one quantity for the multi-run summary label.
+	 */
+	private static String describe(String name, RunningStats stats, QuantileSketch quantiles) {
+		return String.format("%s: mean %.4f, sd %.4f<br>quartiles %.4f, %.4f, %.4f<br>5%% to 95%%: %.4f to %.4f",
+				name, stats.getMean(), stats.getStandardDeviation(),
+				quantiles.getQuantile(0.25), quantiles.getQuantile(0.5), quantiles.getQuantile(0.75),
+				quantiles.getQuantile(0.05), quantiles.getQuantile(0.95));
+	}
+
+	/**
+	 * Runs a single run on a background thread. Long runs advance several generations per step, so
+	 * every run is animated in at most singleRunTicks steps; unless the run is as fast as possible,
+	 * the thread pauses singleRunDelay between steps. The thread only appends to the store and
+	 * records the latest frequency, and the frame timer paints whatever has arrived, so painting
+	 * never holds the simulation back. A stopped run's thread may outlive it; if the store is closed
+	 * under it, its appends are refused and it stops.
+	 */
+	private void startSingleWorker(final Population population, final SplitMixRandom rng, final TrajectoryStore store, final boolean fast) {
+		final int total = singleRunGenerationCount;
+		final int generations = Math.max(1, total / singleRunTicks);
+		singleWorker = new SwingWorker<Void, Void>() {
+			@Override
+			protected Void doInBackground() throws Exception {
+				ReplicateChunkEvent runEvent = new ReplicateChunkEvent();
+				runEvent.begin();
+				try {
+					long draws = rng.getDraws();
+					boolean open = true; //false once the store has been closed under the worker
+					while (open && !isCancelled() && population.getGeneration() < total && !population.isAbsorbed()) {
+						int from = population.getGeneration();
+						GenerationBatchEvent stepEvent = new GenerationBatchEvent();
+						stepEvent.begin();
+						for (int i = 0; i < generations && open && !isCancelled() && population.getGeneration() < total && !population.isAbsorbed(); i++) {
+							population.advance(1);
+							open = store.append(population.getGeneration(), population.getFrequency(), population.getHeterozygosity());
+						}
+						if (stepEvent.shouldCommit()) {
+							stepEvent.population = population.getPopulation();
+							stepEvent.replicates = 1;
+							stepEvent.firstGeneration = from;
+							stepEvent.generations = population.getGeneration() - from;
+							stepEvent.commit();
+						}
+						singleRunLevel = population.getFrequency();
+						Metrics.SIMULATION.addGenerations(population.getGeneration() - from);
+						Metrics.SIMULATION.addRandomDraws(rng.getDraws() - draws);
+						draws = rng.getDraws();
+						if (!fast) {
+							Thread.sleep(singleRunDelay);
+						}
+					}
+				} catch (IOException | RuntimeException e) {
+					//logged here rather than in done(), which never sees the failure of a stopped run
+					LOG.log(Level.WARNING, "Could not record the trajectory", e);
+				}
+				if (runEvent.shouldCommit()) {
+					runEvent.firstReplicate = 0;
+					runEvent.replicates = 1;
+					runEvent.population = population.getPopulation();
+					runEvent.generations = population.getGeneration();
+					runEvent.absorbed = population.isAbsorbed() ? 1 : 0;
+					runEvent.commit();
+				}
+				return null;
+			}
 
-		DataPoint graph1dp = new DataPoint(singleRunPopulation.getGeneration(), singleRunPopulation.getFrequency(), currentDataFlavor);
-		DataPoint graph2dp = new DataPoint(singleRunPopulation.getGeneration(), singleRunPopulation.getHeterozygosity(), currentDataFlavor);
+			@Override
+			protected void done() {
+				if (isCancelled() || singleWorker != this) {
+					return;
+				}
+				singleWorker = null;
+				animationTimer.stop();
+				singleRunLevel = population.getFrequency();
+				singleFrame();
+				runButton.setEnabled(true);
+				inRun = false;
+			}
+		};
+		singleWorker.execute();
+	}
 
-		singleRunGraph.addDataPoint(graph1dp);
-		singleRunHetGraph.addDataPoint(graph2dp);
-		singleRunBubble.setLevel(singleRunPopulation.getFrequency());
+	/**
+	 * Represents a frame in single-run mode: shows everything the simulation thread has stored since
+	 * the last frame, or nothing if it has not stored anything.
+	 */
+	private void singleFrame() {
+		TrajectoryStore store = singleRunStores[currentDataFlavor];
+		if (store == null || store.size() == singleRunPainted) {
+			Metrics.SIMULATION.setUnpaintedGenerations(0);
+			return;
+		}
+		Metrics.SIMULATION.setUnpaintedGenerations(store.size() - singleRunPainted);
+		singleRunPainted = store.size();
+		singleRunBubble.setLevel(singleRunLevel);
 
 		singleRunGraph.repaint();
 		singleRunHetGraph.repaint();
 		singleRunBubble.repaint();
 	}
-}
+}
\ No newline at end of file
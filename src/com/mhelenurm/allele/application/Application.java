@@ -9,6 +9,7 @@ package com.mhelenurm.allele.application;
  * If you have suggestions, comments, or requests to
  * borrow code, email me at <mhelenurm@gmail.com>
  */
+import com.mhelenurm.allele.metrics.Metrics;
 import java.awt.EventQueue;
 import java.util.logging.Logger;
 
@@ -23,11 +24,17 @@ public class Application {
 	private static final Logger LOG = Logger.getLogger(Application.class.getName());
 
 	/**
-	 * Runs the main program.
+	 * Runs the main program. Passing "--batch" as the first argument runs the simulation headless
+	 * instead of opening the window.
 	 *
 	 * @param args The arguments to the application.
 	 */
 	public static void main(String[] args) {
+		Metrics.register();
+		if (BatchMode.isRequested(args)) {
+			System.exit(BatchMode.run(args));
+		}
+
 		System.setProperty("apple.laf.useScreenMenuBar", "true");
 		System.setProperty("com.apple.mrj.application.apple.menu.about.name", "Allele Simulation");
 
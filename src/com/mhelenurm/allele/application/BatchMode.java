@@ -0,0 +1,627 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.application;
+
+import com.mhelenurm.allele.metrics.ExportEvent;
+import com.mhelenurm.allele.metrics.MeteredOutputStream;
+import com.mhelenurm.allele.model.AbsorptionSolver;
+import com.mhelenurm.allele.model.AbsorptionStats;
+import com.mhelenurm.allele.model.BatchCheckpoint;
+import com.mhelenurm.allele.model.MultiRunEngine;
+import com.mhelenurm.allele.model.ParameterSweep;
+import com.mhelenurm.allele.model.QuantileSketch;
+import com.mhelenurm.allele.model.ReplicateResult;
+import com.mhelenurm.allele.model.ReplicateSummary;
+import com.mhelenurm.allele.model.RunningStats;
+import com.mhelenurm.allele.model.SweepCell;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.logging.Logger;
+
+/**
+ * This class runs the multi-run simulation from the command line, sweeps it over a grid of
+ * parameters, or solves the chain for the absorption quantities directly. It never touches AWT or
+ * Swing, so it works on headless machines.
+ *
+ * Results are written and summarized in replicate order, whatever order the workers finish in, so
+ * a batch can checkpoint periodically and a resumed batch produces exactly the output and summary
+ * of one that ran without stopping.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 25, 2013
+ */
+public class BatchMode {
+
+	private static final Logger LOG = Logger.getLogger(BatchMode.class.getName());
+	private static final String USAGE = "usage: Allele --batch [options]\n"
+			+ "  -n, --population <int>     population size (default 100); with --sweep, a list\n"
+			+ "  -p, --frequency <double>   initial allele frequency (default 0.5); with --solve or\n"
+			+ "                             --sweep, a list\n"
+			+ "  -t, --generations <int>    generations per replicate (default 50); with --sweep, a\n"
+			+ "                             list\n"
+			+ "  -r, --replicates <int>     number of replicates (default 100); with --sweep, per cell\n"
+			+ "  -s, --seed <long>          master seed (default: clock)\n"
+			+ "  -j, --threads <int>        worker threads (default: all processors)\n"
+			+ "  -o, --output <file>        write results to a file instead of stdout\n"
+			+ "  -c, --checkpoint <file>    save progress to a file periodically (requires --output)\n"
+			+ "  -i, --checkpoint-interval <seconds>\n"
+			+ "                             time between checkpoints (default 60)\n"
+			+ "  -R, --resume               continue the batch saved in the checkpoint file; its\n"
+			+ "                             parameters replace the ones given\n"
+			+ "  -S, --solve                solve for the fixation probability and mean absorption\n"
+			+ "                             times instead of simulating\n"
+			+ "  -W, --sweep                simulate every combination of the listed population sizes,\n"
+			+ "                             frequencies and generations, writing one row per cell\n"
+			+ "  -V, --verify               with --sweep, rerun the first finished cell as a plain\n"
+			+ "                             batch and check that it gives the same row\n"
+			+ "lists are comma-separated values or from:to:step ranges, e.g. -n 100,1000:5000:1000\n";
+	private static final int POLL_DELAY = 5;
+	private static final int TIME_BUCKETS = 20;
+	private static final int DEFAULT_CHECKPOINT_INTERVAL = 60;
+	private int population = 100;
+	private int populations[] = {100};
+	private double frequencies[] = {0.5};
+	private int generations = 50;
+	private int generationCounts[] = {50};
+	private int replicates = 100;
+	private long seed = System.nanoTime();
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private String output;
+	private boolean solve;
+	private boolean sweep;
+	private boolean verify;
+	private boolean mismatch; //a verified cell differed from its plain batch
+	private String checkpoint;
+	private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+	private boolean resume;
+
+	private BatchMode() {
+	}
+
+	/**
+	 * Gets whether the arguments ask for batch mode.
+	 *
+	 * @param args The arguments to the application.
+	 * @return Whether the application should run headless.
+	 */
+	public static boolean isRequested(String[] args) {
+		return args.length > 0 && args[0].equals("--batch");
+	}
+
+	/**
+	 * Parses the arguments and runs the batch.
+	 *
+	 * @param args The arguments to the application, starting with "--batch".
+	 * @return The process exit status.
+	 */
+	public static int run(String[] args) {
+		BatchMode batch = new BatchMode();
+		try {
+			batch.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.print(USAGE);
+			return 2;
+		}
+		try {
+			batch.execute();
+		} catch (IOException e) {
+			System.err.println("Could not write results: " + e.getMessage());
+			return 1;
+		} catch (InterruptedException e) {
+			return 1;
+		}
+		return batch.mismatch ? 1 : 0;
+	}
+
+	private void parse(String[] args) {
+		for (int i = 1; i < args.length; i++) {
+			String flag = args[i];
+			if (flag.equals("-h") || flag.equals("--help")) {
+				throw new IllegalArgumentException("Allele batch mode");
+			}
+			if (flag.equals("-S") || flag.equals("--solve")) {
+				solve = true;
+				continue;
+			}
+			if (flag.equals("-W") || flag.equals("--sweep")) {
+				sweep = true;
+				continue;
+			}
+			if (flag.equals("-R") || flag.equals("--resume")) {
+				resume = true;
+				continue;
+			}
+			if (flag.equals("-V") || flag.equals("--verify")) {
+				verify = true;
+				continue;
+			}
+			if (i + 1 >= args.length) {
+				throw new IllegalArgumentException("Missing value for " + flag);
+			}
+			String value = args[++i];
+			try {
+				if (flag.equals("-n") || flag.equals("--population")) {
+					populations = parseInts(value);
+				} else if (flag.equals("-p") || flag.equals("--frequency")) {
+					frequencies = parseDoubles(value);
+				} else if (flag.equals("-t") || flag.equals("--generations")) {
+					generationCounts = parseInts(value);
+				} else if (flag.equals("-r") || flag.equals("--replicates")) {
+					replicates = Integer.parseInt(value);
+				} else if (flag.equals("-s") || flag.equals("--seed")) {
+					seed = Long.parseLong(value);
+				} else if (flag.equals("-j") || flag.equals("--threads")) {
+					threads = Integer.parseInt(value);
+				} else if (flag.equals("-o") || flag.equals("--output")) {
+					output = value;
+				} else if (flag.equals("-c") || flag.equals("--checkpoint")) {
+					checkpoint = value;
+				} else if (flag.equals("-i") || flag.equals("--checkpoint-interval")) {
+					checkpointInterval = Integer.parseInt(value);
+				} else {
+					throw new IllegalArgumentException("Unknown option " + flag);
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Bad value for " + flag + ": " + value);
+			}
+		}
+		for (int n : populations) {
+			if (n < 1) {
+				throw new IllegalArgumentException("Population must be at least 1");
+			}
+		}
+		for (double frequency : frequencies) {
+			if (frequency < 0 || frequency > 1) {
+				throw new IllegalArgumentException("Frequency must be between 0 and 1");
+			}
+		}
+		if (!solve && !sweep && frequencies.length != 1) {
+			throw new IllegalArgumentException("Only --solve and --sweep accept several frequencies");
+		}
+		if (!sweep && (populations.length != 1 || generationCounts.length != 1)) {
+			throw new IllegalArgumentException("Only --sweep accepts several population sizes or generations");
+		}
+		if (sweep && (solve || checkpoint != null)) {
+			throw new IllegalArgumentException("--sweep cannot be used with --solve or --checkpoint");
+		}
+		if (verify && !sweep) {
+			throw new IllegalArgumentException("--verify needs --sweep");
+		}
+		population = populations[0];
+		generations = generationCounts[0];
+		for (int t : generationCounts) {
+			if (t < 0) {
+				throw new IllegalArgumentException("Generations, replicates and threads must not be negative");
+			}
+		}
+		if (replicates < 0 || threads < 1) {
+			throw new IllegalArgumentException("Generations, replicates and threads must not be negative");
+		}
+		if (checkpoint != null && (solve || output == null)) {
+			throw new IllegalArgumentException("--checkpoint needs --output and cannot be used with --solve");
+		}
+		if (resume && checkpoint == null) {
+			throw new IllegalArgumentException("--resume needs --checkpoint");
+		}
+		if (checkpointInterval < 1) {
+			throw new IllegalArgumentException("Checkpoint interval must be at least 1 second");
+		}
+	}
+
+	/**
+	 * Parses a comma-separated list of integers, any of which may be an inclusive from:to:step
+	 * range.
+	 */
+	private static int[] parseInts(String value) {
+		double values[] = parseDoubles(value);
+		int ints[] = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != Math.rint(values[i]) || Math.abs(values[i]) > Integer.MAX_VALUE) {
+				throw new NumberFormatException("not an integer: " + values[i]);
+			}
+			ints[i] = (int) values[i];
+		}
+		return ints;
+	}
+
+	/**
+	 * Parses a comma-separated list of numbers, any of which may be an inclusive from:to:step range.
+	 */
+	private static double[] parseDoubles(String value) {
+		ArrayList<Double> values = new ArrayList<Double>();
+		for (String part : value.split(",")) {
+			String range[] = part.trim().split(":");
+			if (range.length == 1) {
+				values.add(Double.parseDouble(range[0].trim()));
+			} else if (range.length == 3) {
+				//decimal arithmetic, so 0.1:0.9:0.1 gives 0.3 and not 0.30000000000000004
+				BigDecimal from = new BigDecimal(range[0].trim());
+				BigDecimal to = new BigDecimal(range[1].trim());
+				BigDecimal step = new BigDecimal(range[2].trim());
+				if (step.signum() <= 0 || to.compareTo(from) < 0) {
+					throw new NumberFormatException("bad range " + part);
+				}
+				BigDecimal count = to.subtract(from).divide(step, 0, RoundingMode.FLOOR).add(BigDecimal.ONE);
+				if (count.compareTo(BigDecimal.valueOf(1 << 24)) > 0) {
+					throw new NumberFormatException("range too long " + part);
+				}
+				for (int i = 0; i < count.intValue(); i++) {
+					values.add(from.add(step.multiply(BigDecimal.valueOf(i))).doubleValue());
+				}
+			} else {
+				throw new NumberFormatException("bad range " + part);
+			}
+		}
+		double parsed[] = new double[values.size()];
+		for (int i = 0; i < parsed.length; i++) {
+			parsed[i] = values.get(i);
+		}
+		return parsed;
+	}
+
+	private void execute() throws IOException, InterruptedException {
+		BatchCheckpoint saved = null;
+		if (resume) {
+			saved = BatchCheckpoint.read(new File(checkpoint));
+			frequencies = new double[]{saved.getFrequency()};
+			population = saved.getPopulation();
+			generations = saved.getGenerations();
+			replicates = saved.getReplicates();
+			seed = saved.getSeed();
+		}
+		FileOutputStream file = null;
+		OutputStream stream = System.out;
+		if (output != null) {
+			file = new FileOutputStream(output, saved != null);
+			if (saved != null) {
+				//drop anything written after the checkpoint; those replicates are run again
+				if (file.getChannel().size() < saved.getOutputLength()) {
+					file.close();
+					throw new IOException(output + " is shorter than the checkpoint says");
+				}
+				file.getChannel().truncate(saved.getOutputLength());
+			}
+			stream = file;
+		}
+		CountingStream counter = new CountingStream(new MeteredOutputStream(stream), (saved == null) ? 0 : saved.getOutputLength());
+		Writer out = new BufferedWriter(new OutputStreamWriter(counter, Charset.forName("UTF-8")), 1 << 16);
+		try {
+			if (solve) {
+				solve(out);
+			} else if (sweep) {
+				sweep(out);
+			} else {
+				simulate(out, saved, counter, file);
+			}
+		} finally {
+			ExportEvent event = new ExportEvent();
+			event.begin();
+			if (output == null) {
+				out.flush();
+			} else {
+				out.close();
+			}
+			commitFlush(event, counter);
+		}
+	}
+
+	private void solve(Writer out) throws IOException {
+		out.write("# population=" + population + "\n");
+		out.write("frequency,fixation_probability,mean_absorption_time,mean_fixation_time,mean_loss_time\n");
+		long start = System.nanoTime();
+		AbsorptionSolver solver = new AbsorptionSolver(population);
+		solver.solve();
+		for (double frequency : frequencies) {
+			out.write(Double.toString(frequency));
+			out.write(',');
+			out.write(Double.toString(solver.getFixationProbability(frequency)));
+			out.write(',');
+			out.write(Double.toString(solver.getMeanAbsorptionTime(frequency)));
+			out.write(',');
+			out.write(Double.toString(solver.getMeanFixationTime(frequency)));
+			out.write(',');
+			out.write(Double.toString(solver.getMeanLossTime(frequency)));
+			out.write('\n');
+		}
+		out.flush();
+		System.err.printf("solved in %d cycles, %.2f s (relative error below %.1e)%n", solver.getCycles(),
+				(System.nanoTime() - start) / 1e9, solver.getErrorEstimate());
+	}
+
+	/**
+	 * Runs every cell of the grid and writes a row per cell as it finishes. Rows come in the order
+	 * the schedule finishes them; the cell column gives the grid order, and each row's values
+	 * depend only on the seed and the cell, never on the thread count.
+	 */
+	private void sweep(Writer out) throws IOException, InterruptedException {
+		out.write("# replicates=" + replicates + " seed=" + seed + "\n");
+		out.write("cell,population,frequency,generations,replicates,seed,fixed,lost,fixation_probability,mean_fixation_time,mean_loss_time,"
+				+ "frequency_mean,frequency_sd,frequency_median,heterozygosity_mean,heterozygosity_sd,heterozygosity_median\n");
+		long start = System.nanoTime();
+		ParameterSweep engine = new ParameterSweep(threads);
+		SweepCell first = null;
+		try {
+			engine.start(populations, frequencies, generationCounts, replicates, seed);
+			ArrayList<SweepCell> cells = new ArrayList<SweepCell>();
+			boolean finished;
+			do {
+				finished = engine.isFinished();
+				cells.clear();
+				if (engine.drainTo(cells, Integer.MAX_VALUE) == 0 && !finished) {
+					Thread.sleep(POLL_DELAY);
+					continue;
+				}
+				for (SweepCell cell : cells) {
+					writeCell(out, cell);
+					if (first == null) {
+						first = cell;
+					}
+				}
+			} while (!finished || engine.hasResults());
+			out.flush();
+			System.err.printf("swept %d cells of %d replicates in %.2f s%n", engine.getCells(), replicates, (System.nanoTime() - start) / 1e9);
+		} finally {
+			engine.shutdown();
+		}
+		if (verify && first != null) {
+			verify(first);
+		}
+	}
+
+	/**
+	 * Runs a cell again as a plain batch with the cell's seed, folded in replicate order like
+	 * simulate() does, and reports whether it gives the cell's row.
+	 */
+	private void verify(SweepCell cell) throws InterruptedException, IOException {
+		ReplicateResult ordered[] = new ReplicateResult[cell.getReplicates()];
+		MultiRunEngine engine = new MultiRunEngine(threads);
+		try {
+			engine.start(cell.getFrequency(), cell.getPopulation(), cell.getGenerations(), cell.getReplicates(), cell.getSeed());
+			ArrayList<ReplicateResult> results = new ArrayList<ReplicateResult>();
+			boolean finished;
+			do {
+				finished = engine.isFinished();
+				results.clear();
+				if (engine.drainTo(results, Integer.MAX_VALUE) == 0 && !finished) {
+					Thread.sleep(POLL_DELAY);
+					continue;
+				}
+				for (ReplicateResult r : results) {
+					ordered[r.getReplicate()] = r;
+				}
+			} while (!finished || engine.hasResults());
+		} finally {
+			engine.shutdown();
+		}
+		AbsorptionStats absorption = new AbsorptionStats(cell.getGenerations(), 1);
+		ReplicateSummary summary = new ReplicateSummary();
+		for (ReplicateResult r : ordered) {
+			absorption.add(r);
+			summary.add(r);
+		}
+		StringWriter swept = new StringWriter();
+		StringWriter batch = new StringWriter();
+		writeCell(swept, cell);
+		writeCell(batch, new SweepCell(cell.getIndex(), cell.getPopulation(), cell.getFrequency(), cell.getGenerations(),
+				cell.getReplicates(), cell.getSeed(), absorption, summary));
+		if (swept.toString().equals(batch.toString())) {
+			System.err.println("verified cell " + cell.getIndex() + " against a plain batch");
+		} else {
+			mismatch = true;
+			System.err.print("cell " + cell.getIndex() + " differs from a plain batch\n  sweep: " + swept + "  batch: " + batch);
+		}
+	}
+
+	private static void writeCell(Writer out, SweepCell cell) throws IOException {
+		AbsorptionStats absorption = cell.getAbsorption();
+		ReplicateSummary summary = cell.getSummary();
+		out.write(Integer.toString(cell.getIndex()));
+		out.write(',');
+		out.write(Integer.toString(cell.getPopulation()));
+		out.write(',');
+		out.write(Double.toString(cell.getFrequency()));
+		out.write(',');
+		out.write(Integer.toString(cell.getGenerations()));
+		out.write(',');
+		out.write(Integer.toString(cell.getReplicates()));
+		out.write(',');
+		out.write(Long.toString(cell.getSeed()));
+		out.write(',');
+		out.write(Long.toString(absorption.getFixedCount()));
+		out.write(',');
+		out.write(Long.toString(absorption.getLostCount()));
+		out.write(',');
+		out.write(Double.toString(absorption.getFixationProbability()));
+		out.write(',');
+		out.write(Double.toString(absorption.getMeanFixationTime()));
+		out.write(',');
+		out.write(Double.toString(absorption.getMeanLossTime()));
+		writeDistribution(out, summary.getFrequencyStats(), summary.getFrequencyQuantiles());
+		writeDistribution(out, summary.getHeterozygosityStats(), summary.getHeterozygosityQuantiles());
+		out.write('\n');
+	}
+
+	private static void writeDistribution(Writer out, RunningStats stats, QuantileSketch quantiles) throws IOException {
+		out.write(',');
+		out.write(Double.toString(stats.getMean()));
+		out.write(',');
+		out.write(Double.toString(stats.getStandardDeviation()));
+		out.write(',');
+		out.write(Double.toString(quantiles.getQuantile(0.5)));
+	}
+
+	private void simulate(Writer out, BatchCheckpoint saved, CountingStream counter, FileOutputStream file) throws IOException, InterruptedException {
+		double frequency = frequencies[0];
+		BatchCheckpoint progress = saved;
+		if (progress == null) {
+			progress = new BatchCheckpoint(frequency, population, generations, replicates, seed,
+					new AbsorptionStats(generations, TIME_BUCKETS), new ReplicateSummary());
+			out.write("# population=" + population + " frequency=" + frequency + " generations=" + generations
+					+ " replicates=" + replicates + " seed=" + seed + "\n");
+			out.write("frequency,heterozygosity,absorbed_at\n");
+		}
+		AbsorptionStats absorption = progress.getAbsorption();
+		ReplicateSummary summary = progress.getSummary();
+		int next = progress.getCompleted();
+		File checkpointFile = (checkpoint == null) ? null : new File(checkpoint);
+		long interval = checkpointInterval * 1000000000L;
+		long lastCheckpoint = System.nanoTime();
+
+		MultiRunEngine engine = new MultiRunEngine(threads);
+		try {
+			engine.start(frequency, population, generations, replicates, seed, next);
+			ArrayList<ReplicateResult> results = new ArrayList<ReplicateResult>();
+			//workers finish chunks out of order; hold results back until the ones before them arrive
+			PriorityQueue<ReplicateResult> pending = new PriorityQueue<ReplicateResult>(1 << 10, new Comparator<ReplicateResult>() {
+				@Override
+				public int compare(ReplicateResult a, ReplicateResult b) {
+					return Integer.compare(a.getReplicate(), b.getReplicate());
+				}
+			});
+			boolean finished;
+			do {
+				finished = engine.isFinished();
+				results.clear();
+				if (engine.drainTo(results, Integer.MAX_VALUE) == 0 && !finished) {
+					Thread.sleep(POLL_DELAY);
+					continue;
+				}
+				pending.addAll(results);
+				while (!pending.isEmpty() && pending.peek().getReplicate() == next) {
+					ReplicateResult r = pending.poll();
+					out.write(Double.toString(r.getFrequency()));
+					out.write(',');
+					out.write(Double.toString(r.getHeterozygosity()));
+					out.write(',');
+					out.write(Integer.toString(r.getAbsorptionGeneration()));
+					out.write('\n');
+					absorption.add(r);
+					summary.add(r);
+					next++;
+				}
+				if (checkpointFile != null && System.nanoTime() - lastCheckpoint >= interval) {
+					saveCheckpoint(out, counter, file, progress, next, checkpointFile);
+					lastCheckpoint = System.nanoTime();
+				}
+			} while (!finished || engine.hasResults());
+			out.flush();
+			if (checkpointFile != null) {
+				saveCheckpoint(out, counter, file, progress, next, checkpointFile);
+			}
+			printSummary(absorption);
+			printDistribution(summary);
+		} finally {
+			engine.shutdown();
+		}
+	}
+
+	/**
+	 * Makes the output durable up to the last folded replicate, then records that point. The output
+	 * is forced first, so a checkpoint never claims bytes that a crash could lose.
+	 */
+	private void saveCheckpoint(Writer out, CountingStream counter, FileOutputStream file, BatchCheckpoint progress, int completed, File checkpointFile) throws IOException {
+		ExportEvent event = new ExportEvent();
+		event.begin();
+		out.flush();
+		file.getChannel().force(false);
+		commitFlush(event, counter);
+		progress.setProgress(completed, counter.getCount());
+		progress.write(checkpointFile);
+		LOG.fine("Checkpoint at replicate " + completed + " of " + replicates);
+	}
+
+	private static void commitFlush(ExportEvent event, CountingStream counter) {
+		if (event.shouldCommit()) {
+			event.export = "batch output";
+			event.phase = ExportEvent.FLUSH;
+			event.bytes = counter.getCount();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Prints the mean, spread and quantiles of the final frequencies and heterozygosities to stderr.
+	 * The summary is folded in replicate order, so it is the same however the batch was scheduled.
+	 */
+	private void printDistribution(ReplicateSummary summary) {
+		printDistribution("frequency", summary.getFrequencyStats(), summary.getFrequencyQuantiles());
+		printDistribution("heterozygosity", summary.getHeterozygosityStats(), summary.getHeterozygosityQuantiles());
+	}
+
+	private void printDistribution(String name, RunningStats stats, QuantileSketch quantiles) {
+		System.err.printf("%s: mean %.6f, sd %.6f, min %.6f, max %.6f%n", name, stats.getMean(), stats.getStandardDeviation(), stats.getMin(), stats.getMax());
+		System.err.printf("  quantiles 5%% %.6f, 25%% %.6f, 50%% %.6f, 75%% %.6f, 95%% %.6f%n", quantiles.getQuantile(0.05),
+				quantiles.getQuantile(0.25), quantiles.getQuantile(0.5), quantiles.getQuantile(0.75), quantiles.getQuantile(0.95));
+	}
+
+	/**
+	 * Prints the fixation and loss summary to stderr, so stdout stays plain CSV.
+	 */
+	private void printSummary(AbsorptionStats absorption) {
+		System.err.printf("fixed: %d (p = %.6f, mean generation %.2f)%n", absorption.getFixedCount(), absorption.getFixationProbability(), absorption.getMeanFixationTime());
+		System.err.printf("lost: %d (p = %.6f, mean generation %.2f)%n", absorption.getLostCount(), absorption.getLossProbability(), absorption.getMeanLossTime());
+		System.err.println("absorption time distribution (generations: fixed, lost):");
+		long fixedTimes[] = absorption.getFixationTimes();
+		long lostTimes[] = absorption.getLossTimes();
+		long span = absorption.getGenerations() + 1L;
+		for (int i = 0; i < fixedTimes.length; i++) {
+			long lo = i * span / fixedTimes.length;
+			long hi = (i + 1) * span / fixedTimes.length - 1;
+			if (hi >= lo) {
+				System.err.printf("  %d-%d: %d, %d%n", lo, hi, fixedTimes[i], lostTimes[i]);
+			}
+		}
+	}
+
+	/**
+	 * Counts the bytes that pass through it, so a checkpoint knows where the output file ends.
+	 */
+	private static class CountingStream extends FilterOutputStream {
+
+		private long count;
+
+		private CountingStream(OutputStream out, long count) {
+			super(out);
+			this.count = count;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte b[], int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		private long getCount() {
+			return count;
+		}
+	}
+}
\ No newline at end of file
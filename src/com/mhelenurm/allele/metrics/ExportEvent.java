@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.metrics;
+import java.util.logging.Logger;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This class is a flight recorder event that spans one phase of writing an export or batch
+ * output: producing the rows, or flushing them to disk.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+@Name("com.mhelenurm.allele.Export")
+@Label("Export")
+@Category({"Allele", "Export"})
+@Description("One phase of writing an export or batch output file")
+@Enabled(false)
+@StackTrace(false)
+public class ExportEvent extends Event {
+
+	/**
+	 * The phase that produces the rows.
+	 */
+	public static final String WRITE = "write";
+	/**
+	 * The phase that flushes the rows to disk.
+	 */
+	public static final String FLUSH = "flush";
+	private static final Logger LOG = Logger.getLogger(ExportEvent.class.getName());
+	@Label("Export")
+	public String export;
+	@Label("Phase")
+	public String phase;
+	@Label("Bytes")
+	@DataAmount
+	@Description("The size of the file after the phase, if known")
+	public long bytes;
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.metrics;
+import java.util.logging.Logger;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This class is a flight recorder event that spans a run of generations advanced in one call,
+ * for a single population or a whole chunk of replicates.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+@Name("com.mhelenurm.allele.GenerationBatch")
+@Label("Generation Batch")
+@Category({"Allele", "Simulation"})
+@Description("Generations advanced in one step of a single run or one chunk of a multi-run")
+@Enabled(false)
+@StackTrace(false)
+public class GenerationBatchEvent extends Event {
+
+	private static final Logger LOG = Logger.getLogger(GenerationBatchEvent.class.getName());
+	@Label("Population Size")
+	public int population;
+	@Label("Replicates")
+	public int replicates;
+	@Label("First Generation")
+	public int firstGeneration;
+	@Label("Generations")
+	public int generations;
+}
\ No newline at end of file
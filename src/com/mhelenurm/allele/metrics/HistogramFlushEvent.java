@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.metrics;
+import java.util.logging.Logger;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This class is a flight recorder event that spans adding a batch of samples or binned counts to
+ * a histogram.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+@Name("com.mhelenurm.allele.HistogramFlush")
+@Label("Histogram Flush")
+@Category({"Allele", "Histogram"})
+@Description("A batch of samples added to a histogram")
+@Enabled(false)
+@StackTrace(false)
+public class HistogramFlushEvent extends Event {
+
+	private static final Logger LOG = Logger.getLogger(HistogramFlushEvent.class.getName());
+	@Label("Histogram")
+	public String histogram;
+	@Label("Samples")
+	public long samples;
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+/**
+ * This class records durations into a histogram with four buckets per power of two, so any
+ * percentile is known to within about 20% from a fixed, small table. Recording is one atomic
+ * increment and never allocates.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class LatencyRecorder {
+
+	private static final Logger LOG = Logger.getLogger(LatencyRecorder.class.getName());
+	private static final int SUB_BITS = 2; //buckets per power of two: 2^SUB_BITS
+	private static final int BUCKETS = 64 << SUB_BITS;
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final RateCounter count = new RateCounter();
+
+	/**
+	 * Records one duration.
+	 *
+	 * @param nanos The duration, in nanoseconds.
+	 */
+	public void record(long nanos) {
+		buckets.incrementAndGet(bucketOf(Math.max(nanos, 0)));
+		count.add(1);
+	}
+
+	private static int bucketOf(long nanos) {
+		if (nanos < (1L << SUB_BITS)) {
+			return (int) nanos;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int sub = (int) (nanos >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+		return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+	}
+
+	/**
+	 * Gets the middle of the range of durations a bucket holds.
+	 */
+	private static double middleOf(int bucket) {
+		if (bucket < (1 << SUB_BITS)) {
+			return bucket;
+		}
+		int exponent = (bucket >>> SUB_BITS) + SUB_BITS - 1;
+		int sub = bucket & ((1 << SUB_BITS) - 1);
+		double width = Math.scalb(1.0, exponent - SUB_BITS);
+		return Math.scalb(1.0, exponent) + (sub + 0.5) * width;
+	}
+
+	/**
+	 * Gets the number of durations recorded.
+	 *
+	 * @return The count.
+	 */
+	public long getCount() {
+		return count.getTotal();
+	}
+
+	/**
+	 * Gets the number of durations recorded per second, recently.
+	 *
+	 * @return The rate, per second.
+	 */
+	public double getRate() {
+		return count.getRate();
+	}
+
+	/**
+	 * Gets a percentile of the recorded durations.
+	 *
+	 * @param fraction The fraction of durations that are at most the result, from 0 to 1.
+	 * @return The duration in milliseconds, or NaN if nothing was recorded.
+	 */
+	public double getPercentile(double fraction) {
+		long counts[] = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if (total == 0) {
+			return Double.NaN;
+		}
+		long rank = (long) Math.ceil(Math.max(0.0, Math.min(1.0, fraction)) * total);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= Math.max(rank, 1)) {
+				return middleOf(i) / 1e6;
+			}
+		}
+		return middleOf(BUCKETS - 1) / 1e6;
+	}
+
+	/**
+	 * Forgets every recorded duration.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets.set(i, 0);
+		}
+		count.reset();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.logging.Logger;
+
+/**
+ * This class counts the bytes written through it as exported bytes in the simulation metrics.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class MeteredOutputStream extends FilterOutputStream {
+
+	private static final Logger LOG = Logger.getLogger(MeteredOutputStream.class.getName());
+
+	/**
+	 * Initializes a MeteredOutputStream.
+	 *
+	 * @param out The stream to write to.
+	 */
+	public MeteredOutputStream(OutputStream out) {
+		super(out);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		Metrics.SIMULATION.addExportBytes(1);
+	}
+
+	@Override
+	public void write(byte b[], int off, int len) throws IOException {
+		out.write(b, off, len);
+		Metrics.SIMULATION.addExportBytes(len);
+	}
+}
\ No newline at end of file
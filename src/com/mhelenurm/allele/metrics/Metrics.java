@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.metrics;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This class holds the program's metrics and publishes them as MBeans, so they can be watched live
+ * in JConsole or VisualVM under com.mhelenurm.allele. The metrics are collected whether or not
+ * they are published.
+ *
+ * For a breakdown of where the time goes, the same places also emit flight recorder events, which
+ * are off unless a recording turns them on; allele.jfc at the top of the project does.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class Metrics {
+
+	private static final Logger LOG = Logger.getLogger(Metrics.class.getName());
+	private static final String DOMAIN = "com.mhelenurm.allele";
+	/**
+	 * The simulation, histogram and export counts.
+	 */
+	public static final SimulationMetrics SIMULATION = new SimulationMetrics();
+	/**
+	 * The paint times of graphs.
+	 */
+	public static final RenderMetrics GRAPH = new RenderMetrics();
+	/**
+	 * The paint times of histograms.
+	 */
+	public static final RenderMetrics HISTOGRAM = new RenderMetrics();
+	/**
+	 * The paint times of bubbles.
+	 */
+	public static final RenderMetrics BUBBLE = new RenderMetrics();
+	private static boolean registered;
+
+	/**
+	 * Registers the metrics with the platform MBean server. Calling this again does nothing, and a
+	 * failure is logged rather than thrown, since the program runs the same without it.
+	 */
+	public static synchronized void register() {
+		if (registered) {
+			return;
+		}
+		registered = true;
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.registerMBean(SIMULATION, new ObjectName(DOMAIN + ":type=Simulation"));
+			server.registerMBean(GRAPH, new ObjectName(DOMAIN + ":type=Rendering,component=MHGraph"));
+			server.registerMBean(HISTOGRAM, new ObjectName(DOMAIN + ":type=Rendering,component=MHHistogram"));
+			server.registerMBean(BUBBLE, new ObjectName(DOMAIN + ":type=Rendering,component=MHBubble"));
+		} catch (JMException e) {
+			LOG.log(Level.WARNING, "Could not register metrics", e);
+		}
+	}
+
+	private Metrics() {
+	}
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.metrics;
+import java.util.logging.Logger;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This class is a flight recorder event that spans one paint pass of a component.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+@Name("com.mhelenurm.allele.Paint")
+@Label("Paint")
+@Category({"Allele", "Rendering"})
+@Description("One paint pass of a graph, histogram or bubble")
+@Enabled(false)
+@StackTrace(false)
+public class PaintEvent extends Event {
+
+	private static final Logger LOG = Logger.getLogger(PaintEvent.class.getName());
+	@Label("Component")
+	public String component;
+	@Label("Width")
+	public int width;
+	@Label("Height")
+	public int height;
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * This class counts events from any number of threads and reports the running total and the
+ * recent rate. The rate is worked out when it is read, over the time since the previous reading,
+ * but no more often than once a second, so no thread is needed to sample it. The total is a
+ * LongAdder, so worker threads adding at once do not contend on one cell.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class RateCounter {
+
+	private static final Logger LOG = Logger.getLogger(RateCounter.class.getName());
+	private static final long SAMPLE_NANOS = 1000000000L; //shortest time a rate is measured over
+	private final LongAdder total = new LongAdder();
+	private long sampleTime = System.nanoTime();
+	private long sampleTotal;
+	private double rate;
+
+	/**
+	 * Counts events.
+	 *
+	 * @param events The number of events.
+	 */
+	public void add(long events) {
+		total.add(events);
+	}
+
+	/**
+	 * Gets the number of events counted since the counter was made or reset.
+	 *
+	 * @return The total.
+	 */
+	public long getTotal() {
+		return total.sum();
+	}
+
+	/**
+	 * Gets the events per second since the previous reading, or since the one before that if the
+	 * previous reading was less than a second ago.
+	 *
+	 * @return The rate, in events per second.
+	 */
+	public synchronized double getRate() {
+		long now = System.nanoTime();
+		if (now - sampleTime >= SAMPLE_NANOS) {
+			long count = total.sum();
+			rate = (count - sampleTotal) * 1e9 / (now - sampleTime);
+			sampleTime = now;
+			sampleTotal = count;
+		}
+		return rate;
+	}
+
+	/**
+	 * Sets the total and the rate back to zero. Events counted while it runs may survive it.
+	 */
+	public synchronized void reset() {
+		total.reset();
+		sampleTime = System.nanoTime();
+		sampleTotal = 0;
+		rate = 0.0;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.metrics;
+import java.util.logging.Logger;
+
+/**
+ * This class times the paints of one kind of component. Components call start() at the top of
+ * paintComponent and stop() at the bottom.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class RenderMetrics implements RenderMetricsMBean {
+
+	private static final Logger LOG = Logger.getLogger(RenderMetrics.class.getName());
+	private final LatencyRecorder paints = new LatencyRecorder();
+
+	/**
+	 * Gets the time a paint starts at.
+	 *
+	 * @return The time, to be passed to stop().
+	 */
+	public long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Records a paint that has finished.
+	 *
+	 * @param start The time start() returned.
+	 */
+	public void stop(long start) {
+		paints.record(System.nanoTime() - start);
+	}
+
+	@Override
+	public long getPaints() {
+		return paints.getCount();
+	}
+
+	@Override
+	public double getPaintsPerSecond() {
+		return paints.getRate();
+	}
+
+	@Override
+	public double getMedianPaintMillis() {
+		return paints.getPercentile(0.5);
+	}
+
+	@Override
+	public double getPaint90thPercentileMillis() {
+		return paints.getPercentile(0.9);
+	}
+
+	@Override
+	public double getPaint99thPercentileMillis() {
+		return paints.getPercentile(0.99);
+	}
+
+	@Override
+	public double getMaxPaintMillis() {
+		return paints.getPercentile(1.0);
+	}
+
+	@Override
+	public void reset() {
+		paints.reset();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.metrics;
+
+/**
+ * This interface is the management view of the paint times of one kind of component.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public interface RenderMetricsMBean {
+
+	/**
+	 * Gets the number of paints timed.
+	 *
+	 * @return The total.
+	 */
+	long getPaints();
+
+	/**
+	 * Gets the number of paints per second.
+	 *
+	 * @return The rate.
+	 */
+	double getPaintsPerSecond();
+
+	/**
+	 * Gets the median paint time.
+	 *
+	 * @return The time in milliseconds, or NaN before the first paint.
+	 */
+	double getMedianPaintMillis();
+
+	/**
+	 * Gets the 90th percentile paint time.
+	 *
+	 * @return The time in milliseconds, or NaN before the first paint.
+	 */
+	double getPaint90thPercentileMillis();
+
+	/**
+	 * Gets the 99th percentile paint time.
+	 *
+	 * @return The time in milliseconds, or NaN before the first paint.
+	 */
+	double getPaint99thPercentileMillis();
+
+	/**
+	 * Gets the longest paint time.
+	 *
+	 * @return The time in milliseconds, or NaN before the first paint.
+	 */
+	double getMaxPaintMillis();
+
+	/**
+	 * Forgets every timed paint.
+	 */
+	void reset();
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.metrics;
+import java.util.logging.Logger;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This class is a flight recorder event that spans one chunk of multi-run replicates, from drawing
+ * their random streams to queuing their results. Replicates are advanced a chunk at a time, so
+ * this is where a replicate starts and ends.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+@Name("com.mhelenurm.allele.ReplicateChunk")
+@Label("Replicate Chunk")
+@Category({"Allele", "Simulation"})
+@Description("A chunk of multi-run replicates, simulated together by one worker thread")
+@Enabled(false)
+@StackTrace(false)
+public class ReplicateChunkEvent extends Event {
+
+	private static final Logger LOG = Logger.getLogger(ReplicateChunkEvent.class.getName());
+	@Label("First Replicate")
+	public int firstReplicate;
+	@Label("Replicates")
+	public int replicates;
+	@Label("Population Size")
+	public int population;
+	@Label("Generations")
+	@Description("The generations each replicate runs for, t")
+	public int generations;
+	@Label("Absorbed")
+	@Description("The replicates that fixed or lost the allele")
+	public int absorbed;
+}
\ No newline at end of file
@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.metrics;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * This class collects counts from the simulation engines, the histograms and the exporters.
+ * Counting is a few atomic additions per batch of work, so it is always on.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class SimulationMetrics implements SimulationMetricsMBean {
+
+	private static final Logger LOG = Logger.getLogger(SimulationMetrics.class.getName());
+	private final RateCounter generations = new RateCounter();
+	private final RateCounter replicates = new RateCounter();
+	private final RateCounter draws = new RateCounter();
+	private final RateCounter samples = new RateCounter();
+	private final RateCounter exportBytes = new RateCounter();
+	private final AtomicLong queuedResults = new AtomicLong();
+	private final AtomicLong unpaintedGenerations = new AtomicLong();
+
+	/**
+	 * Counts simulated generations.
+	 *
+	 * @param count The number of generations.
+	 */
+	public void addGenerations(long count) {
+		generations.add(count);
+	}
+
+	/**
+	 * Counts finished replicates.
+	 *
+	 * @param count The number of replicates.
+	 */
+	public void addReplicates(long count) {
+		replicates.add(count);
+	}
+
+	/**
+	 * Counts drawn random numbers.
+	 *
+	 * @param count The number of draws.
+	 */
+	public void addRandomDraws(long count) {
+		draws.add(count);
+	}
+
+	/**
+	 * Counts samples added to a histogram.
+	 *
+	 * @param count The number of samples.
+	 */
+	public void addHistogramSamples(long count) {
+		samples.add(count);
+	}
+
+	/**
+	 * Counts bytes written to an output or export file.
+	 *
+	 * @param count The number of bytes.
+	 */
+	public void addExportBytes(long count) {
+		exportBytes.add(count);
+	}
+
+	/**
+	 * Changes the number of replicate results waiting to be taken.
+	 *
+	 * @param delta The number queued, or minus the number taken.
+	 */
+	public void addQueuedResults(long delta) {
+		queuedResults.addAndGet(delta);
+	}
+
+	/**
+	 * Sets the number of single-run generations simulated but not yet painted.
+	 *
+	 * @param count The backlog.
+	 */
+	public void setUnpaintedGenerations(long count) {
+		unpaintedGenerations.set(count);
+	}
+
+	@Override
+	public long getGenerations() {
+		return generations.getTotal();
+	}
+
+	@Override
+	public double getGenerationsPerSecond() {
+		return generations.getRate();
+	}
+
+	@Override
+	public long getReplicates() {
+		return replicates.getTotal();
+	}
+
+	@Override
+	public double getReplicatesPerSecond() {
+		return replicates.getRate();
+	}
+
+	@Override
+	public long getRandomDraws() {
+		return draws.getTotal();
+	}
+
+	@Override
+	public double getRandomDrawsPerSecond() {
+		return draws.getRate();
+	}
+
+	@Override
+	public long getHistogramSamples() {
+		return samples.getTotal();
+	}
+
+	@Override
+	public double getHistogramSamplesPerSecond() {
+		return samples.getRate();
+	}
+
+	@Override
+	public long getExportBytes() {
+		return exportBytes.getTotal();
+	}
+
+	@Override
+	public double getExportBytesPerSecond() {
+		return exportBytes.getRate();
+	}
+
+	@Override
+	public long getQueuedResults() {
+		return queuedResults.get();
+	}
+
+	@Override
+	public long getUnpaintedGenerations() {
+		return unpaintedGenerations.get();
+	}
+
+	@Override
+	public void reset() {
+		generations.reset();
+		replicates.reset();
+		draws.reset();
+		samples.reset();
+		exportBytes.reset();
+	}
+}
\ No newline at end of file
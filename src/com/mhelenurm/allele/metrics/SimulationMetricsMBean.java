@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.metrics;
+
+/**
+ * This interface is the management view of the simulation metrics. Totals count from the start of
+ * the program or the last reset, and rates are per second over roughly the last second.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public interface SimulationMetricsMBean {
+
+	/**
+	 * Gets the number of generations simulated.
+	 *
+	 * @return The total.
+	 */
+	long getGenerations();
+
+	/**
+	 * Gets the number of generations simulated per second.
+	 *
+	 * @return The rate.
+	 */
+	double getGenerationsPerSecond();
+
+	/**
+	 * Gets the number of multi-run replicates finished.
+	 *
+	 * @return The total.
+	 */
+	long getReplicates();
+
+	/**
+	 * Gets the number of multi-run replicates finished per second.
+	 *
+	 * @return The rate.
+	 */
+	double getReplicatesPerSecond();
+
+	/**
+	 * Gets the number of random numbers drawn by the simulations.
+	 *
+	 * @return The total.
+	 */
+	long getRandomDraws();
+
+	/**
+	 * Gets the number of random numbers drawn per second.
+	 *
+	 * @return The rate.
+	 */
+	double getRandomDrawsPerSecond();
+
+	/**
+	 * Gets the number of samples added to histograms.
+	 *
+	 * @return The total.
+	 */
+	long getHistogramSamples();
+
+	/**
+	 * Gets the number of samples added to histograms per second.
+	 *
+	 * @return The rate.
+	 */
+	double getHistogramSamplesPerSecond();
+
+	/**
+	 * Gets the number of bytes written to output and export files.
+	 *
+	 * @return The total.
+	 */
+	long getExportBytes();
+
+	/**
+	 * Gets the number of bytes written to output and export files per second.
+	 *
+	 * @return The rate.
+	 */
+	double getExportBytesPerSecond();
+
+	/**
+	 * Gets the number of replicate results waiting to be taken from the multi-run engine.
+	 *
+	 * @return The queue depth.
+	 */
+	long getQueuedResults();
+
+	/**
+	 * Gets the number of single-run generations simulated but not yet painted.
+	 *
+	 * @return The backlog.
+	 */
+	long getUnpaintedGenerations();
+
+	/**
+	 * Sets every total and rate back to zero. The queue depths are left alone.
+	 */
+	void reset();
+}
\ No newline at end of file
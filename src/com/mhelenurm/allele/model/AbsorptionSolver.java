@@ -0,0 +1,323 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.util.logging.Logger;
+
+/**
+ * This class solves the absorbing Wright-Fisher chain for the fixation probability and the mean
+ * times to absorption, fixation and loss, without simulating replicates. The linear systems
+ * (I - Q)x = b over the transient states are solved once for every starting count, so after the
+ * first query every initial frequency for the same population is a lookup.
+ *
+ * The solver alternates Gauss-Seidel sweeps, which remove the rough part of the error, with a
+ * correction from the diffusion approximation, which removes the smooth part that Gauss-Seidel
+ * alone would take O(N) sweeps to shift. The diffusion operator is tridiagonal, so its
+ * factorization is cheap and is kept for every correction. Transition rows come from a
+ * WrightFisherChain as they are needed, so memory is a few vectors of length 2N + 1.
+ *
+ * Truncating a row's tails by a mass m moves the solution by at most m times the longest mean
+ * absorption time, relative to its largest entry, so rows are truncated to the tolerance divided by
+ * 4N, which bounds that time. The error estimate adds that bias to the one left by the iteration.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class AbsorptionSolver {
+
+	private static final Logger LOG = Logger.getLogger(AbsorptionSolver.class.getName());
+	private static final double DEFAULT_TOLERANCE = 1e-10;
+	private static final int MAX_CYCLES = 500;
+	private static final double STALL_FACTOR = 0.5; //a cycle that does not halve the error made no progress
+	private static final int STALL_CYCLES = 3;
+	private final WrightFisherChain chain;
+	private final int copies; //2N
+	private final double tolerance;
+	private final double timeBound; //4N, above the longest mean absorption time of 4N ln 2, which bounds ||(I - Q)^-1||
+	private final double row[];
+	private final int bounds[] = new int[2];
+	private final double diffusion[]; //2N / (i (2N - i)): inverse diffusion coefficient per state
+	private final double pivots[]; //Thomas factorization of the second difference, (i + 1) / i
+	private double fixation[]; //probability of fixation from each count
+	private double absorptionTime[]; //mean generations to absorption
+	private double fixationWeight[]; //E[time * 1{fixed}], so the mean fixation time is this / fixation
+	private int cycles;
+	private double errorEstimate;
+	private double truncation; //the largest tail mass dropped from a row
+
+	/**
+	 * Initializes an AbsorptionSolver with the default tolerance.
+	 *
+	 * @param population The population size N.
+	 */
+	public AbsorptionSolver(int population) {
+		this(population, DEFAULT_TOLERANCE);
+	}
+
+	/**
+	 * Initializes an AbsorptionSolver.
+	 *
+	 * @param population The population size N.
+	 * @param tolerance The relative accuracy to solve to; transition rows are truncated to fit in it.
+	 */
+	public AbsorptionSolver(int population, double tolerance) {
+		timeBound = 4.0 * population;
+		chain = new WrightFisherChain(population, tolerance / timeBound);
+		copies = chain.getCopies();
+		this.tolerance = tolerance;
+		row = new double[copies + 1];
+		diffusion = new double[copies + 1];
+		pivots = new double[copies + 1];
+		for (int i = 1; i < copies; i++) {
+			diffusion[i] = (double) copies / ((double) i * (double) (copies - i));
+			pivots[i] = (double) (i + 1) / (double) i;
+		}
+	}
+
+	/**
+	 * Solves the chain if it has not been solved yet. Every query calls this, so it only needs to be
+	 * called directly to choose when the work is done.
+	 */
+	public void solve() {
+		if (fixation != null) {
+			return;
+		}
+		int n = copies;
+		double u[] = new double[n + 1];
+		double t[] = new double[n + 1];
+		double v[] = new double[n + 1];
+		//start from the diffusion approximation: u = p, T = -4N(p ln p + q ln q), v = -4N q ln q
+		for (int i = 1; i < n; i++) {
+			double p = (double) i / (double) n;
+			double q = 1.0 - p;
+			u[i] = p;
+			v[i] = -2.0 * n * q * Math.log(q);
+			t[i] = -2.0 * n * p * Math.log(p) + v[i];
+		}
+		u[n] = 1.0;
+		double none[] = new double[n + 1];
+		cycles = 0;
+		errorEstimate = 0.0;
+		truncation = 0.0;
+		iterate(new double[][]{u}, new double[][]{none});
+		//the fixation-weighted time is driven by the fixation probability itself
+		iterate(new double[][]{t, v}, new double[][]{constant(1.0), u});
+		//every solution is nonnegative, so a row's truncation moves an entry by at most its mass times the largest one
+		errorEstimate += truncation * timeBound;
+		fixation = u;
+		absorptionTime = t;
+		fixationWeight = v;
+	}
+
+	private double[] constant(double value) {
+		double c[] = new double[copies + 1];
+		for (int i = 1; i < copies; i++) {
+			c[i] = value;
+		}
+		return c;
+	}
+
+	/**
+	 * Solves x_i = c_i + sum_j P(i, j) x_j over the transient states for each pair of vectors,
+	 * holding the entries at 0 and 2N fixed.
+	 */
+	private void iterate(double x[][], double source[][]) {
+		int n = copies;
+		double residual[][] = new double[x.length][n + 1];
+		double best = Double.POSITIVE_INFINITY;
+		int stalled = 0;
+		for (int cycle = 0; cycle < MAX_CYCLES; cycle++) {
+			boolean converged = true;
+			double error = 0.0;
+			residuals(x, source, residual);
+			for (int k = 0; k < x.length; k++) {
+				double worst = 0.0;
+				double largest = 0.0;
+				for (int i = 1; i < n; i++) {
+					worst = Math.max(worst, Math.abs(residual[k][i]));
+					largest = Math.max(largest, Math.abs(x[k][i]));
+				}
+				double relative = (largest == 0.0) ? worst * timeBound : worst * timeBound / largest;
+				error = Math.max(error, relative);
+				converged &= relative <= tolerance;
+			}
+			if (converged) {
+				errorEstimate = Math.max(errorEstimate, error);
+				return;
+			}
+			//for large N rounding can keep the residual above the tolerance; stop once it stops falling
+			if (error < best * STALL_FACTOR) {
+				best = error;
+				stalled = 0;
+			} else if (++stalled >= STALL_CYCLES) {
+				errorEstimate = Math.max(errorEstimate, best);
+				LOG.fine("Absorption solver reached rounding error at " + best);
+				return;
+			}
+			for (int k = 0; k < x.length; k++) {
+				correct(residual[k]);
+				for (int i = 1; i < n; i++) {
+					x[k][i] += residual[k][i];
+				}
+			}
+			sweep(x, source);
+			cycles++;
+		}
+		errorEstimate = Math.max(errorEstimate, best);
+		LOG.warning("Absorption solver stopped at " + MAX_CYCLES + " cycles with estimated error " + errorEstimate);
+	}
+
+	private void residuals(double x[][], double source[][], double out[][]) {
+		for (int i = 1; i < copies; i++) {
+			truncation = Math.max(truncation, chain.row(i, row, bounds));
+			int lo = bounds[0];
+			int hi = bounds[1];
+			for (int k = 0; k < x.length; k++) {
+				double xs[] = x[k];
+				double sum = source[k][i] - xs[i];
+				for (int j = lo; j <= hi; j++) {
+					sum += row[j] * xs[j];
+				}
+				out[k][i] = sum;
+			}
+		}
+	}
+
+	private void sweep(double x[][], double source[][]) {
+		for (int i = 1; i < copies; i++) {
+			chain.row(i, row, bounds);
+			int lo = bounds[0];
+			int hi = bounds[1];
+			double stay = (i >= lo && i <= hi) ? row[i] : 0.0;
+			for (int k = 0; k < x.length; k++) {
+				double xs[] = x[k];
+				double sum = source[k][i] - stay * xs[i];
+				for (int j = lo; j <= hi; j++) {
+					sum += row[j] * xs[j];
+				}
+				xs[i] = sum / (1.0 - stay);
+			}
+		}
+	}
+
+	/**
+	 * Replaces a residual r with the solution e of the diffusion equation
+	 * -(i (2N - i) / 4N)(e[i-1] - 2e[i] + e[i+1]) = r[i], with e[0] = e[2N] = 0.
+	 */
+	private void correct(double r[]) {
+		int n = copies;
+		//forward elimination of the (-1, 2, -1) system with the right-hand side scaled by the diffusion
+		double carry = 0.0;
+		for (int i = 1; i < n; i++) {
+			carry = (2.0 * r[i] * diffusion[i] + carry) / pivots[i];
+			r[i] = carry;
+		}
+		//back substitution
+		double next = 0.0;
+		for (int i = n - 1; i >= 1; i--) {
+			next = r[i] + next / pivots[i];
+			r[i] = next;
+		}
+		r[0] = 0.0;
+		r[n] = 0.0;
+	}
+
+	private int countOf(double frequency) {
+		int population = chain.getPopulation();
+		return 2 * (int) (frequency * population);
+	}
+
+	/**
+	 * Gets the probability that the allele eventually fixes.
+	 *
+	 * @param frequency The initial frequency of the allele, rounded down like Population does.
+	 * @return The fixation probability.
+	 */
+	public double getFixationProbability(double frequency) {
+		solve();
+		return fixation[countOf(frequency)];
+	}
+
+	/**
+	 * Gets the probability that the allele is eventually lost.
+	 *
+	 * @param frequency The initial frequency of the allele, rounded down like Population does.
+	 * @return The loss probability.
+	 */
+	public double getLossProbability(double frequency) {
+		return 1.0 - getFixationProbability(frequency);
+	}
+
+	/**
+	 * Gets the mean number of generations until the allele is fixed or lost.
+	 *
+	 * @param frequency The initial frequency of the allele, rounded down like Population does.
+	 * @return The mean absorption time.
+	 */
+	public double getMeanAbsorptionTime(double frequency) {
+		solve();
+		return absorptionTime[countOf(frequency)];
+	}
+
+	/**
+	 * Gets the mean number of generations until fixation, among populations that fix.
+	 *
+	 * @param frequency The initial frequency of the allele, rounded down like Population does.
+	 * @return The mean fixation time, or NaN if the allele cannot fix.
+	 */
+	public double getMeanFixationTime(double frequency) {
+		solve();
+		int i = countOf(frequency);
+		return (fixation[i] == 0.0) ? Double.NaN : fixationWeight[i] / fixation[i];
+	}
+
+	/**
+	 * Gets the mean number of generations until loss, among populations that lose the allele.
+	 *
+	 * @param frequency The initial frequency of the allele, rounded down like Population does.
+	 * @return The mean loss time, or NaN if the allele cannot be lost.
+	 */
+	public double getMeanLossTime(double frequency) {
+		solve();
+		int i = countOf(frequency);
+		double loss = 1.0 - fixation[i];
+		return (loss == 0.0) ? Double.NaN : (absorptionTime[i] - fixationWeight[i]) / loss;
+	}
+
+	/**
+	 * Gets the population size N.
+	 *
+	 * @return The population size.
+	 */
+	public int getPopulation() {
+		return chain.getPopulation();
+	}
+
+	/**
+	 * Gets the number of correction and sweep cycles the last solve took.
+	 *
+	 * @return The number of cycles.
+	 */
+	public int getCycles() {
+		return cycles;
+	}
+
+	/**
+	 * Gets a bound on the relative error of the solution: the final residual plus the bias from
+	 * truncating the transition rows, each scaled by the longest possible mean absorption time.
+	 *
+	 * @return The estimated relative error.
+	 */
+	public double getErrorEstimate() {
+		return errorEstimate;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,244 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+/**
+ * This class accumulates how often replicates fix or lose the allele, and when. Fixation and loss
+ * times are kept as running sums and as a histogram with a fixed number of buckets, so memory does
+ * not grow with the number of replicates.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class AbsorptionStats {
+
+	private static final Logger LOG = Logger.getLogger(AbsorptionStats.class.getName());
+	private final int generations;
+	private final long fixationTimes[];
+	private final long lossTimes[];
+	private long replicates;
+	private long fixed;
+	private long lost;
+	private long fixationTimeSum;
+	private long lossTimeSum;
+
+	/**
+	 * Initializes AbsorptionStats.
+	 *
+	 * @param generations The length of each replicate; absorption times fall in [0, generations].
+	 * @param buckets The number of histogram buckets for the absorption times.
+	 */
+	public AbsorptionStats(int generations, int buckets) {
+		this.generations = Math.max(generations, 1);
+		fixationTimes = new long[Math.max(buckets, 1)];
+		lossTimes = new long[fixationTimes.length];
+	}
+
+	/**
+	 * Adds the outcome of one replicate.
+	 *
+	 * @param result The finished replicate.
+	 */
+	public void add(ReplicateResult result) {
+		add(result.isFixed(), result.isLost(), result.getAbsorptionGeneration());
+	}
+
+	/**
+	 * Adds the outcome of one replicate.
+	 *
+	 * @param isFixed Whether the allele was fixed.
+	 * @param isLost Whether the allele was lost.
+	 * @param absorptionGeneration The generation of absorption; ignored if neither fixed nor lost.
+	 */
+	public void add(boolean isFixed, boolean isLost, int absorptionGeneration) {
+		replicates++;
+		if (isFixed) {
+			fixed++;
+			fixationTimeSum += absorptionGeneration;
+			fixationTimes[bucketOf(absorptionGeneration)]++;
+		} else if (isLost) {
+			lost++;
+			lossTimeSum += absorptionGeneration;
+			lossTimes[bucketOf(absorptionGeneration)]++;
+		}
+	}
+
+	/**
+	 * Adds everything another accumulator has seen. Both must have the same layout.
+	 *
+	 * @param other The accumulator to merge in.
+	 */
+	public void merge(AbsorptionStats other) {
+		if (other.generations != generations || other.fixationTimes.length != fixationTimes.length) {
+			throw new IllegalArgumentException("Cannot merge statistics with a different layout");
+		}
+		replicates += other.replicates;
+		fixed += other.fixed;
+		lost += other.lost;
+		fixationTimeSum += other.fixationTimeSum;
+		lossTimeSum += other.lossTimeSum;
+		for (int i = 0; i < fixationTimes.length; i++) {
+			fixationTimes[i] += other.fixationTimes[i];
+			lossTimes[i] += other.lossTimes[i];
+		}
+	}
+
+	/**
+	 * Forgets every replicate.
+	 */
+	public void clear() {
+		replicates = 0;
+		fixed = 0;
+		lost = 0;
+		fixationTimeSum = 0;
+		lossTimeSum = 0;
+		for (int i = 0; i < fixationTimes.length; i++) {
+			fixationTimes[i] = 0;
+			lossTimes[i] = 0;
+		}
+	}
+
+	/**
+	 * Writes the complete state, so readFrom() can restore it exactly.
+	 */
+	void writeTo(DataOutput out) throws IOException {
+		out.writeInt(generations);
+		out.writeInt(fixationTimes.length);
+		out.writeLong(replicates);
+		out.writeLong(fixed);
+		out.writeLong(lost);
+		out.writeLong(fixationTimeSum);
+		out.writeLong(lossTimeSum);
+		for (int i = 0; i < fixationTimes.length; i++) {
+			out.writeLong(fixationTimes[i]);
+			out.writeLong(lossTimes[i]);
+		}
+	}
+
+	/**
+	 * Reads state written by writeTo().
+	 */
+	static AbsorptionStats readFrom(DataInput in) throws IOException {
+		AbsorptionStats stats = new AbsorptionStats(in.readInt(), in.readInt());
+		stats.replicates = in.readLong();
+		stats.fixed = in.readLong();
+		stats.lost = in.readLong();
+		stats.fixationTimeSum = in.readLong();
+		stats.lossTimeSum = in.readLong();
+		for (int i = 0; i < stats.fixationTimes.length; i++) {
+			stats.fixationTimes[i] = in.readLong();
+			stats.lossTimes[i] = in.readLong();
+		}
+		return stats;
+	}
+
+	private int bucketOf(int generation) {
+		long b = (long) Math.max(generation, 0) * fixationTimes.length / (generations + 1);
+		return (int) Math.min(b, fixationTimes.length - 1);
+	}
+
+	/**
+	 * Gets the number of replicates seen.
+	 *
+	 * @return The number of replicates.
+	 */
+	public long getReplicates() {
+		return replicates;
+	}
+
+	/**
+	 * Gets the number of replicates that fixed the allele.
+	 *
+	 * @return The number of fixations.
+	 */
+	public long getFixedCount() {
+		return fixed;
+	}
+
+	/**
+	 * Gets the number of replicates that lost the allele.
+	 *
+	 * @return The number of losses.
+	 */
+	public long getLostCount() {
+		return lost;
+	}
+
+	/**
+	 * Gets the fraction of replicates that fixed the allele.
+	 *
+	 * @return The fixation probability, or NaN if there are no replicates.
+	 */
+	public double getFixationProbability() {
+		return (replicates == 0) ? Double.NaN : (double) fixed / (double) replicates;
+	}
+
+	/**
+	 * Gets the fraction of replicates that lost the allele.
+	 *
+	 * @return The loss probability, or NaN if there are no replicates.
+	 */
+	public double getLossProbability() {
+		return (replicates == 0) ? Double.NaN : (double) lost / (double) replicates;
+	}
+
+	/**
+	 * Gets the mean generation of fixation among replicates that fixed.
+	 *
+	 * @return The mean fixation time, or NaN if none fixed.
+	 */
+	public double getMeanFixationTime() {
+		return (fixed == 0) ? Double.NaN : (double) fixationTimeSum / (double) fixed;
+	}
+
+	/**
+	 * Gets the mean generation of loss among replicates that lost.
+	 *
+	 * @return The mean loss time, or NaN if none were lost.
+	 */
+	public double getMeanLossTime() {
+		return (lost == 0) ? Double.NaN : (double) lossTimeSum / (double) lost;
+	}
+
+	/**
+	 * Gets the histogram of fixation times. Bucket i covers generations from
+	 * i * (generations + 1) / buckets up to, but not including, (i + 1) * (generations + 1) / buckets.
+	 *
+	 * @return A copy of the fixation time counts.
+	 */
+	public long[] getFixationTimes() {
+		return fixationTimes.clone();
+	}
+
+	/**
+	 * Gets the histogram of loss times, bucketed like getFixationTimes().
+	 *
+	 * @return A copy of the loss time counts.
+	 */
+	public long[] getLossTimes() {
+		return lossTimes.clone();
+	}
+
+	/**
+	 * Gets the replicate length the buckets were laid out for.
+	 *
+	 * @return The number of generations.
+	 */
+	public int getGenerations() {
+		return generations;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,245 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Logger;
+
+/**
+ * This class holds everything needed to resume a multi-run batch: the batch parameters, how many
+ * replicates have been folded into the results, the statistics accumulated from them and how much
+ * of the output file they account for. Replicates are folded in index order and every replicate's
+ * random stream is derived from the seed and its index, so the completed count is the whole of
+ * the random state.
+ *
+ * A checkpoint is written to a temporary file beside the target, forced to disk and renamed over
+ * the target, so a crash leaves either the old checkpoint or the new one and never a torn file.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class BatchCheckpoint {
+
+	private static final Logger LOG = Logger.getLogger(BatchCheckpoint.class.getName());
+	private static final int MAGIC = 0x414c4350; //"ALCP"
+	private static final int VERSION = 1;
+	private final double frequency;
+	private final int population;
+	private final int generations;
+	private final int replicates;
+	private final long seed;
+	private final AbsorptionStats absorption;
+	private final ReplicateSummary summary;
+	private int completed;
+	private long outputLength;
+
+	/**
+	 * Initializes a BatchCheckpoint for a batch that has not started. The statistics are kept by
+	 * reference, so a later write() saves whatever they hold then.
+	 *
+	 * @param frequency The initial frequency of the allele.
+	 * @param population The population size.
+	 * @param generations The number of generations each replicate runs for.
+	 * @param replicates The number of replicates in the batch.
+	 * @param seed The seed the batch's random streams are derived from.
+	 * @param absorption The fixation and loss statistics of the batch.
+	 * @param summary The frequency and heterozygosity summary of the batch.
+	 */
+	public BatchCheckpoint(double frequency, int population, int generations, int replicates, long seed,
+			AbsorptionStats absorption, ReplicateSummary summary) {
+		this.frequency = frequency;
+		this.population = population;
+		this.generations = generations;
+		this.replicates = replicates;
+		this.seed = seed;
+		this.absorption = absorption;
+		this.summary = summary;
+	}
+
+	/**
+	 * Records progress, to be saved by the next write().
+	 *
+	 * @param completed The number of replicates, counted from index 0, folded into the statistics.
+	 * @param outputLength The number of bytes of output those replicates account for.
+	 */
+	public void setProgress(int completed, long outputLength) {
+		this.completed = completed;
+		this.outputLength = outputLength;
+	}
+
+	/**
+	 * Writes the checkpoint atomically, replacing any earlier checkpoint in the file.
+	 *
+	 * @param file The checkpoint file.
+	 * @throws IOException If the checkpoint could not be written; the old one is then left intact.
+	 */
+	public void write(File file) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		File temp = File.createTempFile("." + file.getName() + "-", ".tmp", dir);
+		try {
+			FileOutputStream stream = new FileOutputStream(temp);
+			try {
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeDouble(frequency);
+				out.writeInt(population);
+				out.writeInt(generations);
+				out.writeInt(replicates);
+				out.writeLong(seed);
+				out.writeInt(completed);
+				out.writeLong(outputLength);
+				absorption.writeTo(out);
+				summary.writeTo(out);
+				out.flush();
+				stream.getChannel().force(true);
+			} finally {
+				stream.close();
+			}
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				LOG.warning("Checkpoint file system cannot rename atomically; replacing " + file + " in place");
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			if (temp.exists()) {
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Reads a checkpoint written by write().
+	 *
+	 * @param file The checkpoint file.
+	 * @return The checkpoint.
+	 * @throws IOException If the file could not be read or is not a checkpoint.
+	 */
+	public static BatchCheckpoint read(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(file + " is not a batch checkpoint");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported checkpoint version " + version);
+			}
+			double frequency = in.readDouble();
+			int population = in.readInt();
+			int generations = in.readInt();
+			int replicates = in.readInt();
+			long seed = in.readLong();
+			int completed = in.readInt();
+			long outputLength = in.readLong();
+			AbsorptionStats absorption = AbsorptionStats.readFrom(in);
+			ReplicateSummary summary = ReplicateSummary.readFrom(in);
+			BatchCheckpoint checkpoint = new BatchCheckpoint(frequency, population, generations, replicates, seed, absorption, summary);
+			checkpoint.setProgress(completed, outputLength);
+			return checkpoint;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Gets the initial frequency of the allele.
+	 *
+	 * @return The initial frequency.
+	 */
+	public double getFrequency() {
+		return frequency;
+	}
+
+	/**
+	 * Gets the population size.
+	 *
+	 * @return The population size.
+	 */
+	public int getPopulation() {
+		return population;
+	}
+
+	/**
+	 * Gets the number of generations each replicate runs for.
+	 *
+	 * @return The number of generations.
+	 */
+	public int getGenerations() {
+		return generations;
+	}
+
+	/**
+	 * Gets the number of replicates in the batch.
+	 *
+	 * @return The number of replicates.
+	 */
+	public int getReplicates() {
+		return replicates;
+	}
+
+	/**
+	 * Gets the seed the batch's random streams are derived from.
+	 *
+	 * @return The seed.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Gets the number of replicates, counted from index 0, folded into the statistics.
+	 *
+	 * @return The number of completed replicates.
+	 */
+	public int getCompleted() {
+		return completed;
+	}
+
+	/**
+	 * Gets the number of bytes of output the completed replicates account for.
+	 *
+	 * @return The output length.
+	 */
+	public long getOutputLength() {
+		return outputLength;
+	}
+
+	/**
+	 * Gets the fixation and loss statistics.
+	 *
+	 * @return The absorption statistics, shared with this checkpoint.
+	 */
+	public AbsorptionStats getAbsorption() {
+		return absorption;
+	}
+
+	/**
+	 * Gets the frequency and heterozygosity summary.
+	 *
+	 * @return The summary, shared with this checkpoint.
+	 */
+	public ReplicateSummary getSummary() {
+		return summary;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * This class acts as an interface for objects that can be exported to, and imported from, the
+ * binary trajectory format written by TrajectoryWriter.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 25, 2013
+ */
+public interface BinaryExport {
+
+	/**
+	 * Gets the name that is used as an export identifier.
+	 *
+	 * @return A string name identifier.
+	 */
+	public String getExportName();
+
+	/**
+	 * Exports data in the binary trajectory format to a stream. The stream is not closed.
+	 *
+	 * @param out The stream that receives the data.
+	 * @throws IOException If the stream fails.
+	 */
+	public void exportBinary(OutputStream out) throws IOException;
+
+	/**
+	 * Replaces data with what is read from a stream in the binary trajectory format. The stream is
+	 * not closed.
+	 *
+	 * @param in The stream to read.
+	 * @throws IOException If the stream fails or is not in the format.
+	 */
+	public void importBinary(InputStream in) throws IOException;
+}
\ No newline at end of file
@@ -0,0 +1,184 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.util.logging.Logger;
+
+/**
+ * This class draws exact samples from a binomial distribution. Small means are sampled by
+ * inversion and large means by the BTPE algorithm (Kachitvichyanukul and Schmeiser, 1988), so the
+ * cost of a draw does not grow with the number of trials.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class Binomial {
+
+	private static final Logger LOG = Logger.getLogger(Binomial.class.getName());
+	private static final double INVERSION_CUTOFF = 30.0; //largest mean that is sampled by inversion
+
+	/**
+	 * Draws a sample from Binomial(n, p).
+	 *
+	 * @param rng The source of uniform random numbers.
+	 * @param n The number of trials.
+	 * @param p The probability of success of each trial.
+	 * @return The number of successes.
+	 */
+	public static int sample(RandomSource rng, int n, double p) {
+		if (n <= 0 || p <= 0.0) {
+			return 0;
+		}
+		if (p >= 1.0) {
+			return n;
+		}
+		double r = Math.min(p, 1.0 - p);
+		int y;
+		if (r * n <= INVERSION_CUTOFF) {
+			y = inversion(rng, n, r);
+		} else {
+			y = btpe(rng, n, r);
+		}
+		return (p > 0.5) ? n - y : y;
+	}
+
+	/**
+	 * Samples by sequential search of the cumulative distribution. Used for small means.
+	 */
+	private static int inversion(RandomSource rng, int n, double p) {
+		double q = 1.0 - p;
+		double qn = Math.exp(n * Math.log(q));
+		double np = n * p;
+		double bound = Math.min(n, np + 10.0 * Math.sqrt(np * q + 1));
+
+		int x = 0;
+		double px = qn;
+		double u = rng.nextDouble();
+		while (u > px) {
+			x++;
+			if (x > bound) {
+				x = 0;
+				px = qn;
+				u = rng.nextDouble();
+			} else {
+				u -= px;
+				px = ((n - x + 1) * p * px) / (x * q);
+			}
+		}
+		return x;
+	}
+
+	/**
+	 * Samples with the triangle/parallelogram/exponential rejection scheme. Requires p <= 0.5.
+	 */
+	private static int btpe(RandomSource rng, int n, double p) {
+		double r = p;
+		double q = 1.0 - r;
+		double fm = n * r + r;
+		int m = (int) Math.floor(fm);
+		double p1 = Math.floor(2.195 * Math.sqrt(n * r * q) - 4.6 * q) + 0.5;
+		double xm = m + 0.5;
+		double xl = xm - p1;
+		double xr = xm + p1;
+		double c = 0.134 + 20.5 / (15.3 + m);
+		double a = (fm - xl) / (fm - xl * r);
+		double laml = a * (1.0 + a / 2.0);
+		a = (xr - fm) / (xr * q);
+		double lamr = a * (1.0 + a / 2.0);
+		double p2 = p1 * (1.0 + 2.0 * c);
+		double p3 = p2 + c / laml;
+		double p4 = p3 + c / lamr;
+		double nrq = n * r * q;
+
+		while (true) {
+			double u = rng.nextDouble() * p4;
+			double v = rng.nextDouble();
+			int y;
+			if (u <= p1) { //triangular region, accepted immediately
+				return (int) Math.floor(xm - p1 * v + u);
+			} else if (u <= p2) { //parallelogram region
+				double x = xl + (u - p1) / c;
+				v = v * c + 1.0 - Math.abs(m - x + 0.5) / p1;
+				if (v > 1.0) {
+					continue;
+				}
+				y = (int) Math.floor(x);
+			} else if (u <= p3) { //left exponential tail
+				y = (int) Math.floor(xl + Math.log(v) / laml);
+				if (y < 0 || v == 0.0) {
+					continue;
+				}
+				v = v * (u - p2) * laml;
+			} else { //right exponential tail
+				y = (int) Math.floor(xr - Math.log(v) / lamr);
+				if (y > n || v == 0.0) {
+					continue;
+				}
+				v = v * (u - p3) * lamr;
+			}
+
+			int k = Math.abs(y - m);
+			if (k <= 20 || k >= nrq / 2.0 - 1) {
+				//evaluate f(y)/f(m) explicitly
+				double s = r / q;
+				double aa = s * (n + 1);
+				double f = 1.0;
+				if (m < y) {
+					for (int i = m + 1; i <= y; i++) {
+						f *= (aa / i - s);
+					}
+				} else if (m > y) {
+					for (int i = y + 1; i <= m; i++) {
+						f /= (aa / i - s);
+					}
+				}
+				if (v <= f) {
+					return y;
+				}
+				continue;
+			}
+
+			//squeeze using upper and lower bounds on log(f(y))
+			double rho = (k / nrq) * ((k * (k / 3.0 + 0.625) + 0.16666666666666666) / nrq + 0.5);
+			double t = -k * (double) k / (2 * nrq);
+			double logv = Math.log(v);
+			if (logv < t - rho) {
+				return y;
+			}
+			if (logv > t + rho) {
+				continue;
+			}
+
+			//final acceptance test with Stirling corrections
+			double x1 = y + 1;
+			double f1 = m + 1;
+			double z = n + 1 - m;
+			double w = n - y + 1;
+			double x2 = x1 * x1;
+			double f2 = f1 * f1;
+			double z2 = z * z;
+			double w2 = w * w;
+			double bound = xm * Math.log(f1 / x1) + (n - m + 0.5) * Math.log(z / w) + (y - m) * Math.log(w * r / (x1 * q))
+					+ stirling(f1, f2) + stirling(z, z2) + stirling(x1, x2) + stirling(w, w2);
+			if (logv <= bound) {
+				return y;
+			}
+		}
+	}
+
+	private static double stirling(double x, double x2) {
+		return (13680. - (462. - (132. - (99. - 140. / x2) / x2) / x2) / x2) / x / 166320.;
+	}
+
+	private Binomial() {
+	}
+}
\ No newline at end of file
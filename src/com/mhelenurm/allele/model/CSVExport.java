@@ -11,6 +11,9 @@
 
 package com.mhelenurm.allele.model;
 
+import java.io.IOException;
+import java.io.Writer;
+
 /**
  * This class acts as an interface for objects that are exportable as CSV files.
  *
@@ -28,9 +31,11 @@ public interface CSVExport {
 	public String getExportName();
 
 	/**
-	 * Exports data in CSV format to an input stream.
+	 * Exports data in CSV format to a writer. Rows are written as they are produced, so the export
+	 * never has to be held in memory.
 	 *
-	 * @return The outputstream that controls the export.
+	 * @param out The writer that receives the rows.
+	 * @throws IOException If the writer fails.
 	 */
-	public StringBuilder exportCSV();
+	public void exportCSV(Writer out) throws IOException;
 }
\ No newline at end of file
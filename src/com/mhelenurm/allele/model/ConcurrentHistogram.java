@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+/**
+ * This class is a histogram that many threads can add to at once without locking. Counts are
+ * striped: each thread adds to one of several rows of counters, and readers sum the rows.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class ConcurrentHistogram {
+
+	private static final Logger LOG = Logger.getLogger(ConcurrentHistogram.class.getName());
+	private static final int PADDING = 8; //longs between rows, so rows never share a cache line
+	private final HistogramBins bins;
+	private final AtomicLongArray cells;
+	private final int stripeMask;
+	private final int stride;
+	private final int totalOffset;
+
+	/**
+	 * Initializes a ConcurrentHistogram with one stripe per processor.
+	 *
+	 * @param bins The binning of the histogram.
+	 */
+	public ConcurrentHistogram(HistogramBins bins) {
+		this(bins, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Initializes a ConcurrentHistogram.
+	 *
+	 * @param bins The binning of the histogram.
+	 * @param stripes The number of counter rows; rounded up to a power of two.
+	 */
+	public ConcurrentHistogram(HistogramBins bins, int stripes) {
+		this.bins = bins;
+		int n = 1;
+		while (n < stripes) {
+			n <<= 1;
+		}
+		stripeMask = n - 1;
+		totalOffset = bins.getDivisions(); //the last counter of a row counts every sample
+		stride = bins.getDivisions() + 1 + PADDING;
+		cells = new AtomicLongArray(n * stride);
+	}
+
+	/**
+	 * Adds a sample.
+	 *
+	 * @param data The sample.
+	 */
+	public void add(double data) {
+		int row = row();
+		int bin = bins.indexOf(data);
+		if (bin >= 0) {
+			cells.incrementAndGet(row + bin);
+		}
+		cells.incrementAndGet(row + totalOffset);
+	}
+
+	/**
+	 * Adds a run of samples from an array.
+	 *
+	 * @param data The array of samples.
+	 * @param off The index of the first sample.
+	 * @param len The number of samples.
+	 */
+	public void add(double data[], int off, int len) {
+		int row = row();
+		for (int i = off; i < off + len; i++) {
+			int bin = bins.indexOf(data[i]);
+			if (bin >= 0) {
+				cells.incrementAndGet(row + bin);
+			}
+		}
+		cells.addAndGet(row + totalOffset, len);
+	}
+
+	/**
+	 * Moves the counts gathered so far into an array and resets them. Samples added concurrently
+	 * are never lost; they show up in this drain or the next one, though a sample's bin and its
+	 * share of the total may land in different drains, so merge the counts even if the total is 0.
+	 *
+	 * @param counts The array that the bin counts are added to.
+	 * @return The number of samples drained, including out-of-range ones.
+	 */
+	public long drainTo(long counts[]) {
+		long total = 0;
+		for (int s = 0; s <= stripeMask; s++) {
+			int row = s * stride;
+			for (int b = 0; b < totalOffset; b++) {
+				counts[b] += cells.getAndSet(row + b, 0);
+			}
+			total += cells.getAndSet(row + totalOffset, 0);
+		}
+		return total;
+	}
+
+	/**
+	 * Forgets every count that has not been drained.
+	 */
+	public void clear() {
+		for (int i = 0; i < cells.length(); i++) {
+			cells.set(i, 0);
+		}
+	}
+
+	/**
+	 * Gets the binning of the histogram.
+	 *
+	 * @return The binning.
+	 */
+	public HistogramBins getBins() {
+		return bins;
+	}
+
+	private int row() {
+		long id = Thread.currentThread().getId();
+		return (int) (SplitMixRandom.mix64(id) & stripeMask) * stride;
+	}
+}
\ No newline at end of file
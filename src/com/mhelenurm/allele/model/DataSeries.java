@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * This class stores a series of points as two growable primitive columns. Points are kept in the
+ * order they were added and nothing is allocated per point.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class DataSeries implements SeriesSource {
+
+	private static final Logger LOG = Logger.getLogger(DataSeries.class.getName());
+	private static final int DEFAULT_CAPACITY = 64;
+	private double xs[];
+	private double ys[];
+	private int size;
+
+	/**
+	 * Initializes an empty DataSeries.
+	 */
+	public DataSeries() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Initializes an empty DataSeries with room for a number of points.
+	 *
+	 * @param capacity The number of points to make room for.
+	 */
+	public DataSeries(int capacity) {
+		xs = new double[Math.max(capacity, 1)];
+		ys = new double[xs.length];
+	}
+
+	/**
+	 * Adds a point to the end of the series.
+	 *
+	 * @param x The x value.
+	 * @param y The y value.
+	 */
+	public void add(double x, double y) {
+		if (size == xs.length) {
+			int capacity = xs.length + (xs.length >> 1) + 1;
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+		}
+		xs[size] = x;
+		ys[size] = y;
+		size++;
+	}
+
+	/**
+	 * Gets the number of points.
+	 *
+	 * @return The number of points.
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the x value of a point.
+	 *
+	 * @param i The index of the point.
+	 * @return The x value.
+	 */
+	@Override
+	public double getX(int i) {
+		return xs[i];
+	}
+
+	/**
+	 * Gets the y value of a point.
+	 *
+	 * @param i The index of the point.
+	 * @return The y value.
+	 */
+	@Override
+	public double getY(int i) {
+		return ys[i];
+	}
+
+	/**
+	 * Gets the x column. Only the first size() entries are points; the array is replaced when the
+	 * series grows, so it should not be kept.
+	 *
+	 * @return The x column.
+	 */
+	public double[] getXs() {
+		return xs;
+	}
+
+	/**
+	 * Gets the y column. Only the first size() entries are points; the array is replaced when the
+	 * series grows, so it should not be kept.
+	 *
+	 * @return The y column.
+	 */
+	public double[] getYs() {
+		return ys;
+	}
+
+	/**
+	 * Removes every point. The columns keep their capacity.
+	 */
+	public void clear() {
+		size = 0;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+/**
+ * This enum represents the strategies a Population can use to draw the next generation.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public enum DriftMode {
+
+	/**
+	 * Draws the next allele count from Binomial(2N, p) in a single step.
+	 */
+	BINOMIAL,
+	/**
+	 * Draws every gene copy separately (the reference mode).
+	 */
+	PER_GENE_COPY,
+	/**
+	 * Keeps every gene copy as one bit and draws each copy of the next generation from a random
+	 * parent copy (the individual-based mode).
+	 */
+	INDIVIDUAL
+}
\ No newline at end of file
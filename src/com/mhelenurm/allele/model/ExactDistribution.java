@@ -0,0 +1,325 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * This class computes the exact distribution of the allele count after some number of generations,
+ * without sampling. It evolves the probability vector over the 2N + 1 states of the Wright-Fisher
+ * chain one generation at a time. Transition rows are truncated where their tails drop below the
+ * tolerance, so each generation misplaces at most that much probability mass; a bound on the total
+ * error so far is reported by getErrorBound().
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class ExactDistribution {
+
+	private static final Logger LOG = Logger.getLogger(ExactDistribution.class.getName());
+	private final WrightFisherChain chain;
+	private final int states;
+	private final double initialFrequency;
+	private final Slice slices[];
+	private final ExecutorService executor;
+	private double probabilities[];
+	private double scratch[]; //the next generation's vector, swapped with probabilities
+	private int generationNumber;
+	private double errorBound;
+
+	/**
+	 * Initializes an ExactDistribution that uses every available processor.
+	 *
+	 * @param frequency The initial frequency of the allele, rounded down like Population does.
+	 * @param population The population size.
+	 * @param tolerance The largest probability mass that may be dropped per generation.
+	 */
+	public ExactDistribution(double frequency, int population, double tolerance) {
+		this(frequency, population, tolerance, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Initializes an ExactDistribution.
+	 *
+	 * @param frequency The initial frequency of the allele, rounded down like Population does.
+	 * @param population The population size.
+	 * @param tolerance The largest probability mass that may be dropped per generation.
+	 * @param threads The number of threads to split each generation over.
+	 */
+	public ExactDistribution(double frequency, int population, double tolerance, int threads) {
+		chain = new WrightFisherChain(population, tolerance);
+		states = chain.getStates();
+		initialFrequency = (double) ((int) (frequency * population)) / (double) population;
+		probabilities = new double[states];
+		scratch = new double[states];
+		probabilities[(int) Math.round(initialFrequency * chain.getCopies())] = 1.0;
+
+		//split the source states so each slice has about the same total row width
+		int parts = Math.max(1, Math.min(threads, states));
+		double cost[] = new double[states + 1];
+		for (int i = 0; i < states; i++) {
+			double p = (double) i / (double) chain.getCopies();
+			cost[i + 1] = cost[i] + 1.0 + Math.sqrt(chain.getCopies() * p * (1.0 - p));
+		}
+		slices = new Slice[parts];
+		int start = 0;
+		for (int s = 0; s < parts; s++) {
+			int end = start;
+			double target = cost[states] * (s + 1) / parts;
+			while (end < states && (cost[end] < target || s == parts - 1)) {
+				end++;
+			}
+			slices[s] = new Slice(start, end);
+			start = end;
+		}
+		if (parts > 1) {
+			executor = Executors.newFixedThreadPool(parts, new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "allele-exact-" + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		} else {
+			executor = null;
+		}
+	}
+
+	/**
+	 * Advances the distribution by a certain amount of time.
+	 *
+	 * @param t The amount of timesteps to advance the model.
+	 * @throws InterruptedException If the calling thread is interrupted.
+	 */
+	public void advance(int t) throws InterruptedException {
+		for (int g = 0; g < t; g++) {
+			if (probabilities[0] + probabilities[states - 1] == 1.0) {
+				generationNumber += t - g; //everything is absorbed
+				return;
+			}
+			step();
+			generationNumber++;
+		}
+	}
+
+	private void step() throws InterruptedException {
+		if (executor == null) {
+			slices[0].call();
+		} else {
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(Arrays.asList(slices));
+			try {
+				for (Future<Void> f : executor.invokeAll(tasks)) {
+					f.get();
+				}
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+		//sum the slices' partial vectors
+		double next[] = scratch;
+		Arrays.fill(next, 0.0);
+		for (Slice s : slices) {
+			errorBound += s.dropped;
+			for (int j = s.touchedLo; j <= s.touchedHi; j++) {
+				next[j] += s.partial[j];
+			}
+		}
+		scratch = probabilities;
+		probabilities = next;
+	}
+
+	/**
+	 * Gets the probability of every allele count. Index j is the probability that the allele has
+	 * j copies.
+	 *
+	 * @return A copy of the probability vector.
+	 */
+	public double[] getProbabilities() {
+		return probabilities.clone();
+	}
+
+	/**
+	 * Gets the probability of one allele count.
+	 *
+	 * @param count The number of copies of the allele.
+	 * @return The probability.
+	 */
+	public double getProbability(int count) {
+		return probabilities[count];
+	}
+
+	/**
+	 * Gets the probability that the allele has been fixed.
+	 *
+	 * @return The fixation probability so far.
+	 */
+	public double getFixationProbability() {
+		return probabilities[states - 1];
+	}
+
+	/**
+	 * Gets the probability that the allele has been lost.
+	 *
+	 * @return The loss probability so far.
+	 */
+	public double getLossProbability() {
+		return probabilities[0];
+	}
+
+	/**
+	 * Gets an upper bound on the error of any probability, or of any sum of probabilities. Each
+	 * generation's truncated tail mass is counted twice: once where it is missing, and once where
+	 * the row renormalization put it.
+	 *
+	 * @return The error bound.
+	 */
+	public double getErrorBound() {
+		double sum = 0;
+		for (double p : probabilities) {
+			sum += p;
+		}
+		return errorBound + Math.abs(1.0 - sum);
+	}
+
+	/**
+	 * Sums the probabilities of the allele frequencies that fall in each histogram bin.
+	 *
+	 * @param bins The binning.
+	 * @return The probability of each bin.
+	 */
+	public double[] binFrequencies(HistogramBins bins) {
+		double out[] = new double[bins.getDivisions()];
+		for (int j = 0; j < states; j++) {
+			int b = bins.indexOf((double) j / (double) chain.getCopies());
+			if (b >= 0) {
+				out[b] += probabilities[j];
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Sums the probabilities of the heterozygosities that fall in each histogram bin.
+	 *
+	 * @param bins The binning.
+	 * @return The probability of each bin.
+	 */
+	public double[] binHeterozygosities(HistogramBins bins) {
+		double out[] = new double[bins.getDivisions()];
+		for (int j = 0; j < states; j++) {
+			double frequency = (double) j / (double) chain.getCopies();
+			int b = bins.indexOf(frequency * 2.0 * (1.0 - frequency));
+			if (b >= 0) {
+				out[b] += probabilities[j];
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Gets the current generation number.
+	 *
+	 * @return The current generation number.
+	 */
+	public int getGeneration() {
+		return generationNumber;
+	}
+
+	/**
+	 * Gets the initial frequency of the allele.
+	 *
+	 * @return The initial frequency of the allele.
+	 */
+	public double getInitialFrequency() {
+		return initialFrequency;
+	}
+
+	/**
+	 * Gets the chain being evolved.
+	 *
+	 * @return The Wright-Fisher chain.
+	 */
+	public WrightFisherChain getChain() {
+		return chain;
+	}
+
+	/**
+	 * Stops the worker threads.
+	 */
+	public void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * A contiguous range of source states. Each slice pushes its states' mass into its own
+	 * partial vector, so slices never write to shared memory.
+	 */
+	private class Slice implements Callable<Void> {
+
+		private final int from;
+		private final int to;
+		private final double partial[];
+		private final double row[];
+		private final int bounds[] = new int[2];
+		private int touchedLo;
+		private int touchedHi;
+		private double dropped;
+
+		private Slice(int from, int to) {
+			this.from = from;
+			this.to = to;
+			partial = new double[states];
+			row = new double[states];
+		}
+
+		@Override
+		public Void call() {
+			if (touchedHi >= touchedLo) {
+				Arrays.fill(partial, touchedLo, touchedHi + 1, 0.0);
+			}
+			touchedLo = states;
+			touchedHi = -1;
+			dropped = 0.0;
+			final double v[] = probabilities;
+			for (int i = from; i < to; i++) {
+				double w = v[i];
+				if (w == 0.0) {
+					continue;
+				}
+				dropped += 2.0 * w * chain.row(i, row, bounds);
+				int lo = bounds[0];
+				int hi = bounds[1];
+				for (int j = lo; j <= hi; j++) {
+					partial[j] += w * row[j];
+				}
+				touchedLo = Math.min(touchedLo, lo);
+				touchedHi = Math.max(touchedHi, hi);
+			}
+			return null;
+		}
+	}
+}
\ No newline at end of file
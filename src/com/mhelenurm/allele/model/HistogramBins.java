@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.util.logging.Logger;
+
+/**
+ * This class maps values to histogram bins in constant time. The range is split into equal bins
+ * that include their upper bound, and the bounds themselves can optionally get bins of their own.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class HistogramBins {
+
+	private static final Logger LOG = Logger.getLogger(HistogramBins.class.getName());
+	private final double minamount;
+	private final double maxamount;
+	private final int divisions;
+	private final boolean lowerBoundSeparate;
+	private final boolean upperBoundSeparate;
+	private final int inner; //number of bins that split the range
+	private final double scale;
+
+	/**
+	 * Initializes HistogramBins.
+	 *
+	 * @param minamount The minimum amount.
+	 * @param maxamount The maximum amount.
+	 * @param divisions The total number of bins.
+	 * @param lowerBoundSeparate Whether the minimum gets a bin of its own.
+	 * @param upperBoundSeparate Whether the maximum gets a bin of its own.
+	 */
+	public HistogramBins(double minamount, double maxamount, int divisions, boolean lowerBoundSeparate, boolean upperBoundSeparate) {
+		this.minamount = minamount;
+		this.maxamount = maxamount;
+		this.divisions = divisions;
+		this.lowerBoundSeparate = lowerBoundSeparate;
+		this.upperBoundSeparate = upperBoundSeparate;
+		inner = divisions - ((lowerBoundSeparate) ? 1 : 0) - ((upperBoundSeparate) ? 1 : 0);
+		scale = inner / (maxamount - minamount);
+	}
+
+	/**
+	 * Gets the bin a value falls into.
+	 *
+	 * @param data The value.
+	 * @return The index of the bin, or -1 if the value is out of range.
+	 */
+	public int indexOf(double data) {
+		if (!(data >= minamount && data <= maxamount)) { //also rejects NaN
+			return -1;
+		}
+		if (data == minamount && lowerBoundSeparate) {
+			return 0;
+		}
+		if (data == maxamount && upperBoundSeparate) {
+			return divisions - 1;
+		}
+		if (inner <= 0) {
+			return -1;
+		}
+		int i = (int) Math.ceil((data - minamount) * scale) - 1;
+		if (i < 0) {
+			i = 0;
+		} else if (i >= inner) {
+			i = inner - 1;
+		}
+		//step at most one bin to agree with upperBound() where the division rounded differently
+		if (i > 0 && data <= upperBound(i - 1)) {
+			i--;
+		} else if (i < inner - 1 && data > upperBound(i)) {
+			i++;
+		}
+		return i + ((lowerBoundSeparate) ? 1 : 0);
+	}
+
+	/**
+	 * Gets the inclusive upper bound of one of the bins that split the range.
+	 *
+	 * @param i The index of the bin, not counting a separate lower bound bin.
+	 * @return The upper bound of the bin.
+	 */
+	public double upperBound(int i) {
+		return minamount + (maxamount - minamount) * ((double) (i + 1) / (double) inner);
+	}
+
+	/**
+	 * Gets the total number of bins.
+	 *
+	 * @return The number of bins.
+	 */
+	public int getDivisions() {
+		return divisions;
+	}
+
+	/**
+	 * Gets the minimum amount.
+	 *
+	 * @return The minimum amount.
+	 */
+	public double getMinAmount() {
+		return minamount;
+	}
+
+	/**
+	 * Gets the maximum amount.
+	 *
+	 * @return The maximum amount.
+	 */
+	public double getMaxAmount() {
+		return maxamount;
+	}
+
+	/**
+	 * Gets whether the minimum gets a bin of its own.
+	 *
+	 * @return Whether the lower bound is separate.
+	 */
+	public boolean getLowerBoundSeparate() {
+		return lowerBoundSeparate;
+	}
+
+	/**
+	 * Gets whether the maximum gets a bin of its own.
+	 *
+	 * @return Whether the upper bound is separate.
+	 */
+	public boolean getUpperBoundSeparate() {
+		return upperBoundSeparate;
+	}
+}
\ No newline at end of file
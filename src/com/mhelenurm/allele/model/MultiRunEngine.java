@@ -0,0 +1,382 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import com.mhelenurm.allele.metrics.GenerationBatchEvent;
+import com.mhelenurm.allele.metrics.Metrics;
+import com.mhelenurm.allele.metrics.ReplicateChunkEvent;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/**
+ * This class runs multi-run replicates on a pool of worker threads. Workers claim replicates in
+ * chunks, advance each chunk as one PopulationBatch and queue the results; the caller drains
+ * finished results whenever it likes, so it never waits on the simulation. If histograms are set,
+ * workers also bin their chunks into them, so the caller only merges counts.
+ *
+ * Every replicate draws from its own substream of the batch seed, chosen by its index, so a batch
+ * gives the same results on any number of threads and any one replicate can be regenerated alone
+ * with replicate(). Results are queued in the order chunks finish; each carries its index, so a
+ * caller that needs a fixed order, such as BatchMode, folds them by index.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class MultiRunEngine {
+
+	private static final Logger LOG = Logger.getLogger(MultiRunEngine.class.getName());
+	static final int CHUNK_SIZE = 256; //replicates claimed by a worker and advanced together
+	private final int threads;
+	private final ExecutorService executor;
+	private volatile Batch batch;
+	private ConcurrentHistogram frequencyHistogram;
+	private ConcurrentHistogram heterozygosityHistogram;
+
+	/**
+	 * Initializes a MultiRunEngine that uses every available processor.
+	 */
+	public MultiRunEngine() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Initializes a MultiRunEngine.
+	 *
+	 * @param threads The number of worker threads.
+	 */
+	public MultiRunEngine(int threads) {
+		this.threads = Math.max(1, threads);
+		executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "allele-worker-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Sets the histograms that the workers bin the final frequencies and heterozygosities of later
+	 * batches into. A chunk is binned as its results are queued, and drainTo() with count arrays
+	 * takes both together, so the counts drained are always those of the results drained. Counts a
+	 * cancelled batch has not had drained are discarded with its results.
+	 *
+	 * @param frequencies The histogram of final frequencies, or null.
+	 * @param heterozygosities The histogram of final heterozygosities, or null.
+	 */
+	public void setHistograms(ConcurrentHistogram frequencies, ConcurrentHistogram heterozygosities) {
+		frequencyHistogram = frequencies;
+		heterozygosityHistogram = heterozygosities;
+	}
+
+	/**
+	 * Starts a batch of replicates, cancelling any batch that is still running.
+	 *
+	 * @param frequency The initial frequency of the allele.
+	 * @param population The population size.
+	 * @param generations The number of generations each replicate runs for.
+	 * @param replicates The number of replicates in the batch.
+	 * @param seed The seed the batch's random streams are derived from.
+	 */
+	public void start(double frequency, int population, int generations, int replicates, long seed) {
+		start(frequency, population, generations, replicates, seed, 0);
+	}
+
+	/**
+	 * Starts a batch of replicates that skips the ones before a given index, cancelling any batch
+	 * that is still running. Each replicate's result depends only on the batch parameters and its
+	 * index, so resuming a batch this way gives the same results as running it whole.
+	 *
+	 * @param frequency The initial frequency of the allele.
+	 * @param population The population size.
+	 * @param generations The number of generations each replicate runs for.
+	 * @param replicates The number of replicates in the batch.
+	 * @param seed The seed the batch's random streams are derived from.
+	 * @param first The index of the first replicate to compute.
+	 */
+	public void start(double frequency, int population, int generations, int replicates, long seed, int first) {
+		cancel();
+		Batch b = new Batch(frequency, population, generations, replicates, seed, first, frequencyHistogram, heterozygosityHistogram);
+		batch = b;
+		for (int i = 0; i < threads; i++) {
+			executor.execute(b);
+		}
+	}
+
+	/**
+	 * Runs a single replicate of a batch on the calling thread. The result is the same as the one
+	 * the batch produces for that index.
+	 *
+	 * @param frequency The initial frequency of the allele.
+	 * @param population The population size.
+	 * @param generations The number of generations the replicate runs for.
+	 * @param seed The seed of the batch.
+	 * @param index The index of the replicate in the batch.
+	 * @return The result of the replicate.
+	 */
+	public static ReplicateResult replicate(double frequency, int population, int generations, long seed, int index) {
+		PopulationBatch populations = new PopulationBatch(frequency, population, 1);
+		populations.advance(generations, new RandomSource[]{SplitMixRandom.substream(seed, index)});
+		return new ReplicateResult(index, populations.getFrequency(0), populations.getHeterozygosity(0), populations.getAbsorptionGeneration(0));
+	}
+
+	/**
+	 * Moves finished results into a collection.
+	 *
+	 * @param target The collection that receives the results.
+	 * @param max The most results to move.
+	 * @return The number of results moved.
+	 */
+	public int drainTo(Collection<? super ReplicateResult> target, int max) {
+		Batch b = batch;
+		if (b == null) {
+			return 0;
+		}
+		int moved = 0;
+		ReplicateResult r;
+		while (moved < max && (r = b.results.poll()) != null) {
+			target.add(r);
+			moved++;
+		}
+		Metrics.SIMULATION.addQueuedResults(-moved);
+		return moved;
+	}
+
+	/**
+	 * Moves every finished result into a collection and adds their bin counts from the histograms
+	 * set with setHistograms() to arrays. Workers cannot queue a chunk in between, so the counts are
+	 * exactly those of the moved results.
+	 *
+	 * @param target The collection that receives the results.
+	 * @param frequencyCounts The array that the frequency bin counts are added to.
+	 * @param heterozygosityCounts The array that the heterozygosity bin counts are added to.
+	 * @return The number of results moved.
+	 */
+	public int drainTo(Collection<? super ReplicateResult> target, long frequencyCounts[], long heterozygosityCounts[]) {
+		Batch b = batch;
+		if (b == null) {
+			return 0;
+		}
+		Lock lock = b.publishing.writeLock(); //waits out workers that are queuing a chunk
+		lock.lock();
+		try {
+			if (b.frequencyHistogram != null) {
+				b.frequencyHistogram.drainTo(frequencyCounts);
+			}
+			if (b.heterozygosityHistogram != null) {
+				b.heterozygosityHistogram.drainTo(heterozygosityCounts);
+			}
+			return drainTo(target, Integer.MAX_VALUE);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets whether every replicate of the current batch has been computed.
+	 *
+	 * @return Whether the batch has finished.
+	 */
+	public boolean isFinished() {
+		Batch b = batch;
+		return b == null || b.cancelled || b.completed.get() >= b.replicates;
+	}
+
+	/**
+	 * Gets whether finished results are still waiting to be drained.
+	 *
+	 * @return Whether results are waiting.
+	 */
+	public boolean hasResults() {
+		Batch b = batch;
+		return b != null && !b.results.isEmpty();
+	}
+
+	/**
+	 * Stops the current batch. Results that are already queued are discarded.
+	 */
+	public void cancel() {
+		Batch b = batch;
+		if (b != null) {
+			Lock lock = b.publishing.writeLock(); //waits out workers that are queuing a chunk
+			lock.lock();
+			try {
+				b.cancelled = true;
+				int dropped = 0;
+				while (b.results.poll() != null) {
+					dropped++;
+				}
+				Metrics.SIMULATION.addQueuedResults(-dropped);
+				if (b.frequencyHistogram != null) {
+					b.frequencyHistogram.clear();
+				}
+				if (b.heterozygosityHistogram != null) {
+					b.heterozygosityHistogram.clear();
+				}
+			} finally {
+				lock.unlock();
+			}
+			batch = null;
+		}
+	}
+
+	/**
+	 * Gets the number of worker threads.
+	 *
+	 * @return The number of worker threads.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Cancels the current batch and stops the worker threads.
+	 */
+	public void shutdown() {
+		cancel();
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Adds the generations and random draws of a finished chunk to the metrics.
+	 *
+	 * @param populations The chunk's replicates, after advancing.
+	 * @param rngs The random source of each replicate.
+	 * @param size The number of replicates in the chunk.
+	 * @param generations The number of generations the chunk was advanced.
+	 */
+	static void count(PopulationBatch populations, SplitMixRandom rngs[], int size, int generations) {
+		long steps = 0;
+		long draws = 0;
+		for (int k = 0; k < size; k++) {
+			int absorbed = populations.getAbsorptionGeneration(k);
+			steps += (absorbed >= 0) ? absorbed : generations;
+			draws += rngs[k].getDraws();
+		}
+		Metrics.SIMULATION.addGenerations(steps);
+		Metrics.SIMULATION.addRandomDraws(draws);
+	}
+
+	/**
+	 * One batch of replicates. Each worker thread runs this until the chunks are used up.
+	 */
+	private static class Batch implements Runnable {
+
+		private final double frequency;
+		private final int population;
+		private final int generations;
+		private final int replicates;
+		private final long seed;
+		private final AtomicInteger nextChunk = new AtomicInteger();
+		private final AtomicInteger completed = new AtomicInteger();
+		private final ConcurrentLinkedQueue<ReplicateResult> results = new ConcurrentLinkedQueue<ReplicateResult>();
+		private final int first;
+		private final ConcurrentHistogram frequencyHistogram;
+		private final ConcurrentHistogram heterozygosityHistogram;
+		private volatile boolean cancelled;
+		//workers queue chunks under the read lock and cancel() takes the write lock, so nothing is queued after a cancel
+		private final ReentrantReadWriteLock publishing = new ReentrantReadWriteLock();
+
+		private Batch(double frequency, int population, int generations, int replicates, long seed, int first,
+				ConcurrentHistogram frequencyHistogram, ConcurrentHistogram heterozygosityHistogram) {
+			this.frequency = frequency;
+			this.population = population;
+			this.generations = generations;
+			this.replicates = replicates;
+			this.seed = seed;
+			this.first = Math.max(0, Math.min(first, replicates));
+			this.frequencyHistogram = frequencyHistogram;
+			this.heterozygosityHistogram = heterozygosityHistogram;
+			nextChunk.set(this.first / CHUNK_SIZE);
+			completed.set(this.first);
+		}
+
+		@Override
+		public void run() {
+			PopulationBatch populations = null;
+			SplitMixRandom rngs[] = new SplitMixRandom[CHUNK_SIZE];
+			double frequencies[] = new double[CHUNK_SIZE];
+			double heterozygosities[] = new double[CHUNK_SIZE];
+			int chunk;
+			while (!cancelled && (chunk = nextChunk.getAndIncrement()) * (long) CHUNK_SIZE < replicates) {
+				int size = (int) Math.min(CHUNK_SIZE, replicates - (long) chunk * CHUNK_SIZE);
+				int base = chunk * CHUNK_SIZE;
+				ReplicateChunkEvent chunkEvent = new ReplicateChunkEvent();
+				chunkEvent.begin();
+				//every replicate gets its own stream, so its result does not depend on its chunk or thread
+				for (int k = 0; k < size; k++) {
+					rngs[k] = SplitMixRandom.substream(seed, base + k);
+				}
+				if (populations == null || populations.size() != size) {
+					populations = new PopulationBatch(frequency, population, size);
+				} else {
+					populations.reset();
+				}
+				GenerationBatchEvent advanceEvent = new GenerationBatchEvent();
+				advanceEvent.begin();
+				populations.advance(generations, rngs);
+				if (advanceEvent.shouldCommit()) {
+					advanceEvent.population = population;
+					advanceEvent.replicates = size;
+					advanceEvent.firstGeneration = 0;
+					advanceEvent.generations = generations;
+					advanceEvent.commit();
+				}
+				count(populations, rngs, size, generations);
+				int skipped = Math.max(0, Math.min(size, first - base)); //a resumed batch's first chunk may be partly done
+				Lock lock = publishing.readLock();
+				lock.lock();
+				try {
+					if (cancelled) {
+						return;
+					}
+					for (int k = skipped; k < size; k++) {
+						frequencies[k - skipped] = populations.getFrequency(k);
+						heterozygosities[k - skipped] = populations.getHeterozygosity(k);
+					}
+					if (frequencyHistogram != null) {
+						frequencyHistogram.add(frequencies, 0, size - skipped);
+					}
+					if (heterozygosityHistogram != null) {
+						heterozygosityHistogram.add(heterozygosities, 0, size - skipped);
+					}
+					Metrics.SIMULATION.addQueuedResults(size - skipped); //before the results, so a drain never takes the depth below 0
+					for (int k = skipped; k < size; k++) {
+						results.add(new ReplicateResult(base + k, populations.getFrequency(k), populations.getHeterozygosity(k), populations.getAbsorptionGeneration(k)));
+					}
+				} finally {
+					lock.unlock();
+				}
+				completed.addAndGet(size - skipped);
+				Metrics.SIMULATION.addReplicates(size - skipped);
+				if (chunkEvent.shouldCommit()) {
+					chunkEvent.firstReplicate = base;
+					chunkEvent.replicates = size;
+					chunkEvent.population = population;
+					chunkEvent.generations = generations;
+					chunkEvent.absorbed = size - populations.getSegregatingCount();
+					chunkEvent.commit();
+				}
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -10,8 +10,18 @@
  */
 package com.mhelenurm.allele.model;
 
+import com.mhelenurm.allele.metrics.ExportEvent;
+import com.mhelenurm.allele.metrics.Metrics;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
@@ -25,55 +35,157 @@ import javax.swing.JOptionPane;
 public class OutputUtil {
 
 	private static final Logger LOG = Logger.getLogger(OutputUtil.class.getName());
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final String BINARY_SUFFIX = ".allele";
 
 	/**
-	 * Writes a string to a filename.
+	 * Asks the user for a file and exports a CSVExport object to it.
 	 *
-	 * @param filename The name of the file to write to.
-	 * @param data The data to write to the file.
-	 * @return Whether it succeeded writing.
+	 * @param data The object to export.
+	 */
+	public static void writeToFile(CSVExport data) {
+		File file = chooseSaveFile(".csv");
+		if (file != null) {
+			writeToFile(file, data);
+		}
+	}
+
+	/**
+	 * Asks the user for a file and exports a BinaryExport object to it.
+	 *
+	 * @param data The object to export.
+	 */
+	public static void writeBinaryToFile(BinaryExport data) {
+		File file = chooseSaveFile(BINARY_SUFFIX);
+		if (file != null) {
+			writeBinaryToFile(file, data);
+		}
+	}
+
+	/**
+	 * Asks the user for a file and imports it into a BinaryExport object.
+	 *
+	 * @param data The object to import into.
 	 */
-	public static void writeToFile(String data) {
-		boolean returnval = true;
+	public static void readBinaryFromFile(BinaryExport data) {
+		try {
+			JFileChooser fc = new JFileChooser();
+			if (fc.showOpenDialog(null) == JFileChooser.APPROVE_OPTION) {
+				readBinaryFromFile(fc.getSelectedFile(), data);
+			}
+		} catch (Exception e) {
+			LOG.log(Level.WARNING, "Could not import " + data.getExportName(), e);
+		}
+	}
+
+	/**
+	 * Asks the user for a file to save to, confirming before an existing file is overwritten.
+	 *
+	 * @param suffix The suffix that is added to the name if it is missing.
+	 * @return The file, or null if the user cancelled.
+	 */
+	private static File chooseSaveFile(String suffix) {
 		try {
 			JFileChooser fc = new JFileChooser();
 			int returnVal = fc.showSaveDialog(null);
 			if (returnVal == JFileChooser.APPROVE_OPTION) {
 				File file = fc.getSelectedFile();
 
-				if (!file.getName().endsWith(".csv")) {
-					file.renameTo(new File(file.getAbsolutePath() + ".csv"));
+				if (!file.getName().endsWith(suffix)) {
+					file = new File(file.getAbsolutePath() + suffix);
 				}
 				if (!file.isDirectory()) {
 					if (file.exists()) {
 						int canoverwrite = JOptionPane.showConfirmDialog(fc, "Are you sure it's okay to overwrite " + file.getAbsolutePath() + "?", "Overwrite?", JOptionPane.YES_NO_OPTION);
 						if (canoverwrite == JOptionPane.YES_OPTION) {
-							returnval = writeToFile(file, data);
+							return file;
 						}
 					} else {
-						returnval = writeToFile(file, data);
+						return file;
 					}
 				}
-
-			} else {
-				returnval = false;
 			}
 		} catch (Exception e) {
-			returnval = false;
+			LOG.log(Level.WARNING, "Could not choose a file", e);
+		}
+		return null;
+	}
+
+	/**
+	 * Exports a CSVExport object to a file. The rows are streamed through a file channel, so memory
+	 * use does not depend on the size of the export.
+	 *
+	 * @param outputFile The file to write to.
+	 * @param data The object to export.
+	 * @return Whether it succeeded writing.
+	 */
+	public static boolean writeToFile(File outputFile, CSVExport data) {
+		try (FileChannel channel = FileChannel.open(outputFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+				Writer fileWriter = new BufferedWriter(Channels.newWriter(channel, "UTF-8"), BUFFER_SIZE)) {
+			ExportEvent write = new ExportEvent();
+			write.begin();
+			data.exportCSV(fileWriter);
+			commit(write, data.getExportName(), ExportEvent.WRITE, channel);
+			ExportEvent flush = new ExportEvent();
+			flush.begin();
+			fileWriter.flush();
+			commit(flush, data.getExportName(), ExportEvent.FLUSH, channel);
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Could not export " + data.getExportName(), e);
+			return false;
 		}
+		Metrics.SIMULATION.addExportBytes(outputFile.length());
+		return true;
 	}
 
-	public static boolean writeToFile(File outputFile, String data) {
-		PrintWriter fileWriter = null;
+	/**
+	 * Exports a BinaryExport object to a file.
+	 *
+	 * @param outputFile The file to write to.
+	 * @param data The object to export.
+	 * @return Whether it succeeded writing.
+	 */
+	public static boolean writeBinaryToFile(File outputFile, BinaryExport data) {
+		try (FileChannel channel = FileChannel.open(outputFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+				OutputStream stream = Channels.newOutputStream(channel)) {
+			ExportEvent write = new ExportEvent();
+			write.begin();
+			data.exportBinary(stream);
+			commit(write, data.getExportName(), ExportEvent.WRITE, channel);
+			ExportEvent flush = new ExportEvent();
+			flush.begin();
+			stream.flush();
+			commit(flush, data.getExportName(), ExportEvent.FLUSH, channel);
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Could not export " + data.getExportName(), e);
+			return false;
+		}
+		Metrics.SIMULATION.addExportBytes(outputFile.length());
+		return true;
+	}
 
-		try {
-			fileWriter = new PrintWriter(outputFile);
-			fileWriter.write(data);
-			fileWriter.close();
-		} catch (Exception e) {
-			if (fileWriter != null) {
-				fileWriter.close();
-			}
+	private static void commit(ExportEvent event, String export, String phase, FileChannel channel) throws IOException {
+		if (event.shouldCommit()) {
+			event.export = export;
+			event.phase = phase;
+			event.bytes = channel.size();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Imports a file into a BinaryExport object.
+	 *
+	 * @param inputFile The file to read.
+	 * @param data The object to import into.
+	 * @return Whether it succeeded reading.
+	 */
+	public static boolean readBinaryFromFile(File inputFile, BinaryExport data) {
+		try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+				InputStream stream = Channels.newInputStream(channel)) {
+			data.importBinary(stream);
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Could not import " + data.getExportName(), e);
 			return false;
 		}
 		return true;
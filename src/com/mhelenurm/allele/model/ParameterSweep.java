@@ -0,0 +1,395 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import com.mhelenurm.allele.metrics.Metrics;
+import com.mhelenurm.allele.metrics.ReplicateChunkEvent;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/**
+ * This class runs a grid of multi-run batches, one for every combination of population size,
+ * initial frequency and number of generations, on a pool of worker threads. Each cell's replicates
+ * are split into the same chunks MultiRunEngine uses, and the chunks of the whole grid are handed
+ * out longest first by their estimated cost, so the expensive cells start early and the cheap ones
+ * fill in around them instead of leaving one thread to finish a large cell alone. A finished cell
+ * is summarized and queued for the caller to drain, so results can be written as they arrive.
+ *
+ * Every cell has its own seed, derived from the sweep's seed and the cell's index, and its
+ * replicates are summarized in replicate order once the whole cell has finished, so a cell's results
+ * do not depend on the thread count or on the rest of the grid, and equal those of a plain batch run
+ * with the cell's seed. A chunk's final frequencies and heterozygosities are kept until then.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class ParameterSweep {
+
+	private static final Logger LOG = Logger.getLogger(ParameterSweep.class.getName());
+	private final int threads;
+	private final ExecutorService executor;
+	private volatile Sweep sweep;
+
+	/**
+	 * Initializes a ParameterSweep that uses every available processor.
+	 */
+	public ParameterSweep() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Initializes a ParameterSweep.
+	 *
+	 * @param threads The number of worker threads.
+	 */
+	public ParameterSweep(int threads) {
+		this.threads = Math.max(1, threads);
+		executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "allele-sweep-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Starts a sweep over every combination of the given parameters, cancelling any sweep that is
+	 * still running.
+	 *
+	 * @param populations The population sizes.
+	 * @param frequencies The initial frequencies of the allele.
+	 * @param generations The numbers of generations each replicate runs for.
+	 * @param replicates The number of replicates in each cell.
+	 * @param seed The seed the cells' seeds are derived from.
+	 */
+	public void start(int populations[], double frequencies[], int generations[], int replicates, long seed) {
+		long cells = (long) populations.length * frequencies.length * generations.length;
+		if (cells > Integer.MAX_VALUE || cells * ((replicates + (long) MultiRunEngine.CHUNK_SIZE - 1) / MultiRunEngine.CHUNK_SIZE) > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Sweep of " + cells + " cells is too large");
+		}
+		cancel();
+		Sweep s = new Sweep(populations.clone(), frequencies.clone(), generations.clone(), replicates, seed);
+		sweep = s;
+		for (int i = 0; i < threads; i++) {
+			executor.execute(s);
+		}
+	}
+
+	/**
+	 * Gets the seed of one cell of a sweep.
+	 *
+	 * @param seed The seed of the sweep.
+	 * @param cell The index of the cell.
+	 * @return The seed the cell's random streams are derived from.
+	 */
+	public static long cellSeed(long seed, int cell) {
+		return SplitMixRandom.substream(seed, cell).nextLong();
+	}
+
+	/**
+	 * Estimates the relative cost of one replicate. Drawing the next count costs about the same for
+	 * any population size, so the cost is the number of generations simulated, which is the given
+	 * number or, if sooner, the mean time until the allele is fixed or lost,
+	 * -4N(p ln p + q ln q) under the diffusion approximation, plus a generation's worth for setup.
+	 *
+	 * @param population The population size.
+	 * @param frequency The initial frequency of the allele, rounded down like Population does.
+	 * @param generations The number of generations the replicate runs for.
+	 * @return The estimated cost, in generations.
+	 */
+	public static double estimateCost(int population, double frequency, int generations) {
+		double p = (double) (int) (frequency * population) / (double) population;
+		if (p <= 0.0 || p >= 1.0) {
+			return 1.0;
+		}
+		double q = 1.0 - p;
+		double absorption = -4.0 * population * (p * Math.log(p) + q * Math.log(q));
+		return 1.0 + Math.min(generations, absorption);
+	}
+
+	/**
+	 * Moves finished cells into a collection. Cells finish in whatever order the schedule gives.
+	 *
+	 * @param target The collection that receives the cells.
+	 * @param max The most cells to move.
+	 * @return The number of cells moved.
+	 */
+	public int drainTo(Collection<? super SweepCell> target, int max) {
+		Sweep s = sweep;
+		if (s == null) {
+			return 0;
+		}
+		int moved = 0;
+		SweepCell c;
+		while (moved < max && (c = s.results.poll()) != null) {
+			target.add(c);
+			moved++;
+		}
+		Metrics.SIMULATION.addQueuedResults(-moved);
+		return moved;
+	}
+
+	/**
+	 * Gets the number of cells in the current sweep.
+	 *
+	 * @return The number of cells; 0 if there is no sweep.
+	 */
+	public int getCells() {
+		Sweep s = sweep;
+		return (s == null) ? 0 : s.cells;
+	}
+
+	/**
+	 * Gets the number of cells of the current sweep that have finished, drained or not.
+	 *
+	 * @return The number of finished cells.
+	 */
+	public int getFinishedCells() {
+		Sweep s = sweep;
+		return (s == null) ? 0 : s.finished.get();
+	}
+
+	/**
+	 * Gets whether every cell of the current sweep has finished.
+	 *
+	 * @return Whether the sweep has finished.
+	 */
+	public boolean isFinished() {
+		Sweep s = sweep;
+		return s == null || s.cancelled || s.finished.get() >= s.cells;
+	}
+
+	/**
+	 * Gets whether finished cells are still waiting to be drained.
+	 *
+	 * @return Whether cells are waiting.
+	 */
+	public boolean hasResults() {
+		Sweep s = sweep;
+		return s != null && !s.results.isEmpty();
+	}
+
+	/**
+	 * Stops the current sweep. Cells that are already queued are discarded.
+	 */
+	public void cancel() {
+		Sweep s = sweep;
+		if (s != null) {
+			Lock lock = s.publishing.writeLock(); //waits out workers that are queuing a cell
+			lock.lock();
+			try {
+				s.cancelled = true;
+				int dropped = 0;
+				while (s.results.poll() != null) {
+					dropped++;
+				}
+				Metrics.SIMULATION.addQueuedResults(-dropped);
+			} finally {
+				lock.unlock();
+			}
+			sweep = null;
+		}
+	}
+
+	/**
+	 * Gets the number of worker threads.
+	 *
+	 * @return The number of worker threads.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Cancels the current sweep and stops the worker threads.
+	 */
+	public void shutdown() {
+		cancel();
+		executor.shutdownNow();
+	}
+
+	/**
+	 * One sweep. Each worker thread runs this until the chunks are used up.
+	 */
+	private static class Sweep implements Runnable {
+
+		private final int populations[];
+		private final double frequencies[];
+		private final int generations[];
+		private final int replicates;
+		private final long seed;
+		private final int cells;
+		private final int chunks; //chunks per cell
+		private final int order[]; //chunk numbers, costliest first; chunk c is chunk c % chunks of cell c / chunks
+		private final AtomicInteger next = new AtomicInteger();
+		private final AtomicIntegerArray remaining; //chunks of each cell still running
+		private final AbsorptionStats absorptions[][]; //chunk statistics waiting for the rest of their cell
+		private final double chunkFrequencies[][][]; //final values of each chunk, waiting for the rest of their cell
+		private final double chunkHeterozygosities[][][];
+		private final AtomicInteger finished = new AtomicInteger();
+		private final ConcurrentLinkedQueue<SweepCell> results = new ConcurrentLinkedQueue<SweepCell>();
+		private volatile boolean cancelled;
+		private final ReentrantReadWriteLock publishing = new ReentrantReadWriteLock(); //as in MultiRunEngine
+
+		private Sweep(int populations[], double frequencies[], int generations[], int replicates, long seed) {
+			this.populations = populations;
+			this.frequencies = frequencies;
+			this.generations = generations;
+			this.replicates = Math.max(0, replicates);
+			this.seed = seed;
+			cells = populations.length * frequencies.length * generations.length;
+			chunks = Math.max(1, (this.replicates + MultiRunEngine.CHUNK_SIZE - 1) / MultiRunEngine.CHUNK_SIZE);
+			remaining = new AtomicIntegerArray(cells);
+			absorptions = new AbsorptionStats[cells][];
+			chunkFrequencies = new double[cells][][];
+			chunkHeterozygosities = new double[cells][][];
+			final double costs[] = new double[cells];
+			Integer sorted[] = new Integer[cells * chunks];
+			for (int cell = 0; cell < cells; cell++) {
+				remaining.set(cell, chunks);
+				absorptions[cell] = new AbsorptionStats[chunks];
+				chunkFrequencies[cell] = new double[chunks][];
+				chunkHeterozygosities[cell] = new double[chunks][];
+				costs[cell] = estimateCost(populationOf(cell), frequencyOf(cell), generationsOf(cell));
+				for (int c = 0; c < chunks; c++) {
+					sorted[cell * chunks + c] = cell * chunks + c;
+				}
+			}
+			//longest processing time first; ties keep grid order. Only the last chunk of a cell is short
+			Arrays.sort(sorted, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer a, Integer b) {
+					return Double.compare(costs[b / chunks] * sizeOf(b % chunks), costs[a / chunks] * sizeOf(a % chunks));
+				}
+			});
+			order = new int[sorted.length];
+			for (int i = 0; i < sorted.length; i++) {
+				order[i] = sorted[i];
+			}
+		}
+
+		private int populationOf(int cell) {
+			return populations[cell / (frequencies.length * generations.length)];
+		}
+
+		private int generationsOf(int cell) {
+			return generations[cell / frequencies.length % generations.length];
+		}
+
+		private double frequencyOf(int cell) {
+			return frequencies[cell % frequencies.length];
+		}
+
+		private int sizeOf(int chunk) {
+			return Math.max(0, Math.min(MultiRunEngine.CHUNK_SIZE, replicates - chunk * MultiRunEngine.CHUNK_SIZE));
+		}
+
+		@Override
+		public void run() {
+			SplitMixRandom rngs[] = new SplitMixRandom[MultiRunEngine.CHUNK_SIZE];
+			int i;
+			while (!cancelled && (i = next.getAndIncrement()) < order.length) {
+				int cell = order[i] / chunks;
+				int chunk = order[i] % chunks;
+				int population = populationOf(cell);
+				double frequency = frequencyOf(cell);
+				int length = generationsOf(cell);
+				int size = sizeOf(chunk);
+				int base = chunk * MultiRunEngine.CHUNK_SIZE;
+				long cellSeed = cellSeed(seed, cell);
+				ReplicateChunkEvent event = new ReplicateChunkEvent();
+				event.begin();
+				AbsorptionStats absorption = new AbsorptionStats(length, 1);
+				double frequencies[] = new double[size];
+				double heterozygosities[] = new double[size];
+				if (size > 0) {
+					for (int k = 0; k < size; k++) {
+						rngs[k] = SplitMixRandom.substream(cellSeed, base + k);
+					}
+					PopulationBatch populations = new PopulationBatch(frequency, population, size);
+					populations.advance(length, rngs);
+					if (cancelled) {
+						return;
+					}
+					MultiRunEngine.count(populations, rngs, size, length);
+					for (int k = 0; k < size; k++) {
+						double f = populations.getFrequency(k);
+						absorption.add(f == 1.0, f == 0.0, populations.getAbsorptionGeneration(k));
+						frequencies[k] = f;
+						heterozygosities[k] = populations.getHeterozygosity(k);
+					}
+					Metrics.SIMULATION.addReplicates(size);
+					if (event.shouldCommit()) {
+						event.firstReplicate = base;
+						event.replicates = size;
+						event.population = population;
+						event.generations = length;
+						event.absorbed = size - populations.getSegregatingCount();
+						event.commit();
+					}
+				}
+				absorptions[cell][chunk] = absorption;
+				chunkFrequencies[cell][chunk] = frequencies;
+				chunkHeterozygosities[cell][chunk] = heterozygosities;
+				if (remaining.decrementAndGet(cell) == 0) {
+					finish(cell, population, frequency, length, cellSeed);
+				}
+			}
+		}
+
+		/**
+		 * Merges the chunks of a cell in order and queues the cell. Runs on the thread that finished
+		 * the cell's last chunk.
+		 */
+		private void finish(int cell, int population, double frequency, int length, long cellSeed) {
+			AbsorptionStats absorption = new AbsorptionStats(length, 1); //whole counts, so merging is exact
+			ReplicateSummary summary = new ReplicateSummary();
+			for (int c = 0; c < chunks; c++) {
+				absorption.merge(absorptions[cell][c]);
+				double frequencies[] = chunkFrequencies[cell][c];
+				double heterozygosities[] = chunkHeterozygosities[cell][c];
+				for (int k = 0; k < frequencies.length; k++) {
+					summary.add(frequencies[k], heterozygosities[k]); //one at a time, as BatchMode folds a batch
+				}
+			}
+			absorptions[cell] = null;
+			chunkFrequencies[cell] = null;
+			chunkHeterozygosities[cell] = null;
+			Lock lock = publishing.readLock();
+			lock.lock();
+			try {
+				if (cancelled) {
+					return;
+				}
+				Metrics.SIMULATION.addQueuedResults(1);
+				results.add(new SweepCell(cell, population, frequency, length, replicates, cellSeed, absorption, summary));
+				finished.incrementAndGet();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
\ No newline at end of file
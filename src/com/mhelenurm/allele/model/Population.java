@@ -24,9 +24,13 @@ public class Population {
 	private static final Logger LOG = Logger.getLogger(Population.class.getName());
 	private double initialFrequency; //allele frequency
 	private int generationNumber; //current population generation
+	private int absorptionGeneration; //generation the allele was fixed or lost, or -1
 	private double frequency; //allele frequency
 	private int population;
-	private boolean alleles[];
+	private long genes[]; //gene copies bit-packed 64 per word; only allocated in individual mode
+	private long offspring[]; //the next generation's words, swapped with genes
+	private DriftMode driftMode;
+	private RandomSource rng;
 
 	private Population() {
 	}
@@ -38,34 +42,118 @@ public class Population {
 	 * @param population The initial population count.
 	 */
 	public Population(double frequency, int population) {
+		this(frequency, population, DriftMode.BINOMIAL);
+	}
+
+	/**
+	 * Initializes a Population that uses a specific drift strategy.
+	 *
+	 * @param frequency The initial frequency of the allele.
+	 * @param population The initial population count.
+	 * @param driftMode The strategy used to draw each new generation.
+	 */
+	public Population(double frequency, int population, DriftMode driftMode) {
+		this(frequency, population, driftMode, RandomSources.current());
+	}
+
+	/**
+	 * Initializes a Population that draws from a specific random source. Two populations built
+	 * from sources with the same seed evolve identically.
+	 *
+	 * @param frequency The initial frequency of the allele.
+	 * @param population The initial population count.
+	 * @param driftMode The strategy used to draw each new generation.
+	 * @param rng The random source that drives the model.
+	 */
+	public Population(double frequency, int population, DriftMode driftMode, RandomSource rng) {
+		this.driftMode = driftMode;
+		this.rng = rng;
 		initialFrequency = (double) ((int) (frequency * population)) / (double) population;
 		this.frequency = initialFrequency;
 		this.population = population;
 
-		alleles = new boolean[2 * population];
-		for (int i = 0; i < 2 * population; i++) {
-			alleles[i] = Math.random() < initialFrequency;
+		absorptionGeneration = isAbsorbed() ? 0 : -1;
+
+		if (driftMode == DriftMode.INDIVIDUAL) {
+			int copies = 2 * population;
+			genes = new long[(copies + 63) >>> 6];
+			offspring = new long[genes.length];
+			//parents are drawn uniformly, so which copies carry the allele does not matter
+			int positives = (int) Math.round(initialFrequency * copies);
+			for (int i = 0; i < positives; i++) {
+				genes[i >>> 6] |= 1L << i;
+			}
 		}
 	}
 
 	/**
-	 * Advances the model by a certain amount of time.
+	 * Advances the model by a certain amount of time. Once the allele is fixed or lost the
+	 * frequency can never change again, so the remaining generations are skipped.
 	 *
 	 * @param t The amount of timesteps to advance the model.
 	 */
 	public void advance(int t) {
+		int copies = population * 2;
 		for (int i = 0; i < t; i++) {
+			if (absorptionGeneration >= 0) {
+				generationNumber += t - i;
+				return;
+			}
 			generationNumber++;
-			int positives = 0;
-			for (int j = 0; j < population * 2; j++) {
-				if (Math.random() < frequency) {
-					positives++;
+			int positives;
+			if (driftMode == DriftMode.BINOMIAL) {
+				positives = Binomial.sample(rng, copies, frequency);
+			} else if (driftMode == DriftMode.INDIVIDUAL) {
+				positives = resample(copies);
+			} else {
+				positives = 0;
+				for (int j = 0; j < copies; j++) {
+					if (rng.nextDouble() < frequency) {
+						positives++;
+					}
 				}
 			}
-			frequency = (double) positives / (double) (population * 2);
+			frequency = (double) positives / (double) copies;
+			if (isAbsorbed()) {
+				absorptionGeneration = generationNumber;
+			}
 		}
 	}
 
+	/**
+	 * Draws every gene copy of the next generation from a uniformly chosen parent copy, one output
+	 * word at a time, and counts the allele with Long.bitCount.
+	 *
+	 * @param copies The number of gene copies, 2N.
+	 * @return The number of copies that carry the allele.
+	 */
+	private int resample(int copies) {
+		long parents[] = genes;
+		long next[] = offspring;
+		long bound = copies;
+		int positives = 0;
+		for (int w = 0; w < next.length; w++) {
+			int bits = Math.min(64, copies - (w << 6));
+			long word = 0L;
+			for (int b = 0; b < bits; b += 2) {
+				//each 32-bit half of a draw picks a parent by multiply-shift
+				long r = rng.nextLong();
+				int first = (int) (((r >>> 32) * bound) >>> 32);
+				int second = (int) (((r & 0xFFFFFFFFL) * bound) >>> 32);
+				word |= ((parents[first >>> 6] >>> first) & 1L) << b;
+				word |= ((parents[second >>> 6] >>> second) & 1L) << (b + 1);
+			}
+			if (bits < 64) {
+				word &= (1L << bits) - 1; //an odd last word draws one copy too many
+			}
+			next[w] = word;
+			positives += Long.bitCount(word);
+		}
+		offspring = parents;
+		genes = next;
+		return positives;
+	}
+
 	/**
 	 * Gets the initial frequency of the allele.
 	 *
@@ -102,6 +190,33 @@ public class Population {
 		return frequency;
 	}
 
+	/**
+	 * Gets whether the allele has been fixed or lost.
+	 *
+	 * @return Whether the frequency is 0 or 1.
+	 */
+	public boolean isAbsorbed() {
+		return frequency == 0.0 || frequency == 1.0;
+	}
+
+	/**
+	 * Gets the generation at which the allele was fixed or lost.
+	 *
+	 * @return The generation of absorption, or -1 if the allele is still segregating.
+	 */
+	public int getAbsorptionGeneration() {
+		return absorptionGeneration;
+	}
+
+	/**
+	 * Gets the strategy used to draw each new generation.
+	 *
+	 * @return The drift mode.
+	 */
+	public DriftMode getDriftMode() {
+		return driftMode;
+	}
+
 	/**
 	 * Gets the heterozygosity of the population.
 	 *
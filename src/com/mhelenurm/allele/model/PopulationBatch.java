@@ -0,0 +1,210 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.util.logging.Logger;
+
+/**
+ * This class is the logic handler for many replicate populations at once. Every replicate is just
+ * an allele count in one primitive array, and all of them are advanced together a generation at a
+ * time, so the work is a flat loop over contiguous memory with no per-replicate objects.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class PopulationBatch {
+
+	private static final Logger LOG = Logger.getLogger(PopulationBatch.class.getName());
+	private final double initialFrequency;
+	private final int population;
+	private final int copies; //gene copies per replicate, 2N
+	private final int counts[]; //allele count of every replicate
+	private final int absorbedAt[]; //generation each replicate was fixed or lost, or -1
+	private final int active[]; //indices of the replicates that are still segregating
+	private int activeCount;
+	private int generationNumber;
+
+	/**
+	 * Initializes a PopulationBatch. Every replicate starts at the same frequency, rounded down the
+	 * same way Population rounds it.
+	 *
+	 * @param frequency The initial frequency of the allele.
+	 * @param population The population size of each replicate.
+	 * @param replicates The number of replicates.
+	 */
+	public PopulationBatch(double frequency, int population, int replicates) {
+		this.population = population;
+		copies = 2 * population;
+		initialFrequency = (double) ((int) (frequency * population)) / (double) population;
+		counts = new int[replicates];
+		absorbedAt = new int[replicates];
+		active = new int[replicates];
+		reset();
+	}
+
+	/**
+	 * Puts every replicate back at the initial frequency and generation 0, so the arrays can be
+	 * reused for another set of replicates.
+	 */
+	public void reset() {
+		int start = (int) Math.round(initialFrequency * copies);
+		boolean absorbed = start == 0 || start == copies;
+		activeCount = 0;
+		for (int k = 0; k < counts.length; k++) {
+			counts[k] = start;
+			absorbedAt[k] = (absorbed) ? 0 : -1;
+			if (!absorbed) {
+				active[activeCount++] = k;
+			}
+		}
+		generationNumber = 0;
+	}
+
+	/**
+	 * Advances every replicate by a certain amount of time. Only replicates that are still
+	 * segregating are drawn; once every replicate is fixed or lost, the remaining generations are
+	 * skipped.
+	 *
+	 * @param t The amount of timesteps to advance the model.
+	 * @param rng The random source that drives the model.
+	 */
+	public void advance(int t, RandomSource rng) {
+		advance(t, rng, null);
+	}
+
+	/**
+	 * Advances every replicate by a certain amount of time, each replicate drawing only from its own
+	 * random source. A replicate's trajectory then does not depend on which other replicates share
+	 * the batch.
+	 *
+	 * @param t The amount of timesteps to advance the model.
+	 * @param rngs The random source of each replicate.
+	 */
+	public void advance(int t, RandomSource rngs[]) {
+		if (rngs.length < counts.length) {
+			throw new IllegalArgumentException("Need " + counts.length + " random sources, got " + rngs.length);
+		}
+		advance(t, null, rngs);
+	}
+
+	private void advance(int t, RandomSource shared, RandomSource each[]) {
+		final int n = copies;
+		final double inv = 1.0 / n;
+		final int c[] = counts;
+		final int idx[] = active;
+		for (int i = 0; i < t; i++) {
+			if (activeCount == 0) {
+				generationNumber += t - i;
+				return;
+			}
+			generationNumber++;
+			int kept = 0;
+			for (int r = 0; r < activeCount; r++) {
+				int k = idx[r];
+				int next = Binomial.sample((each == null) ? shared : each[k], n, c[k] * inv);
+				c[k] = next;
+				if (next == 0 || next == n) {
+					absorbedAt[k] = generationNumber;
+				} else {
+					idx[kept++] = k;
+				}
+			}
+			activeCount = kept;
+		}
+	}
+
+	/**
+	 * Gets the number of replicates.
+	 *
+	 * @return The number of replicates.
+	 */
+	public int size() {
+		return counts.length;
+	}
+
+	/**
+	 * Gets the current generation number of the replicates.
+	 *
+	 * @return The current generation number.
+	 */
+	public int getGeneration() {
+		return generationNumber;
+	}
+
+	/**
+	 * Gets the population size of each replicate.
+	 *
+	 * @return The population size.
+	 */
+	public int getPopulation() {
+		return population;
+	}
+
+	/**
+	 * Gets the initial frequency of the allele.
+	 *
+	 * @return The initial frequency of the allele.
+	 */
+	public double getInitialFrequency() {
+		return initialFrequency;
+	}
+
+	/**
+	 * Gets the allele count of a replicate.
+	 *
+	 * @param k The index of the replicate.
+	 * @return The number of copies of the allele.
+	 */
+	public int getCount(int k) {
+		return counts[k];
+	}
+
+	/**
+	 * Gets the allele frequency of a replicate.
+	 *
+	 * @param k The index of the replicate.
+	 * @return The allele frequency.
+	 */
+	public double getFrequency(int k) {
+		return (double) counts[k] / (double) copies;
+	}
+
+	/**
+	 * Gets the generation at which a replicate was fixed or lost.
+	 *
+	 * @param k The index of the replicate.
+	 * @return The generation of absorption, or -1 if the replicate is still segregating.
+	 */
+	public int getAbsorptionGeneration(int k) {
+		return absorbedAt[k];
+	}
+
+	/**
+	 * Gets the number of replicates that are still segregating.
+	 *
+	 * @return The number of replicates that are neither fixed nor lost.
+	 */
+	public int getSegregatingCount() {
+		return activeCount;
+	}
+
+	/**
+	 * Gets the heterozygosity of a replicate.
+	 *
+	 * @param k The index of the replicate.
+	 * @return The heterozygosity.
+	 */
+	public double getHeterozygosity(int k) {
+		double frequency = getFrequency(k);
+		return frequency * 2.0 * (1.0 - frequency);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,308 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * This class estimates quantiles of a stream of values with a KLL sketch (Karnin, Lang and Liberty,
+ * 2016). Values are kept in levels of compactors; an item at level h stands for 2^h values. When a
+ * level fills it is sorted and every other item, starting at a random offset, moves up a level.
+ * Level capacities shrink geometrically below the top level, so the sketch holds about 3k values
+ * whatever the stream length, and the rank error is about 1.7 / k. Sketches merge by appending
+ * level to level and compacting, so each worker thread can keep its own.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class QuantileSketch {
+
+	private static final Logger LOG = Logger.getLogger(QuantileSketch.class.getName());
+	private static final int DEFAULT_K = 200;
+	private static final double DECAY = 2.0 / 3.0; //capacity ratio between neighboring levels
+	private static final int MIN_CAPACITY = 8;
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private final int k;
+	private double levels[][];
+	private int sizes[];
+	private int levelCount;
+	private long count;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	private long coin; //state of the coin that picks which half of a level moves up
+
+	/**
+	 * Initializes an empty QuantileSketch with the default accuracy.
+	 */
+	public QuantileSketch() {
+		this(DEFAULT_K);
+	}
+
+	/**
+	 * Initializes an empty QuantileSketch.
+	 *
+	 * @param k The accuracy parameter; the top level holds k values.
+	 */
+	public QuantileSketch(int k) {
+		this.k = Math.max(k, MIN_CAPACITY);
+		levels = new double[1][this.k];
+		sizes = new int[1];
+		levelCount = 1;
+	}
+
+	/**
+	 * Initializes a QuantileSketch with the same contents as another.
+	 *
+	 * @param other The sketch to copy.
+	 */
+	public QuantileSketch(QuantileSketch other) {
+		k = other.k;
+		levelCount = other.levelCount;
+		levels = new double[other.levels.length][];
+		for (int h = 0; h < levelCount; h++) {
+			levels[h] = other.levels[h].clone();
+		}
+		sizes = other.sizes.clone();
+		count = other.count;
+		min = other.min;
+		max = other.max;
+		coin = other.coin;
+	}
+
+	/**
+	 * Adds a value.
+	 *
+	 * @param x The value.
+	 */
+	public void add(double x) {
+		append(0, x);
+		count++;
+		if (x < min) {
+			min = x;
+		}
+		if (x > max) {
+			max = x;
+		}
+		if (sizes[0] >= capacity(0)) {
+			compress();
+		}
+	}
+
+	/**
+	 * Adds a run of values from an array.
+	 *
+	 * @param xs The array of values.
+	 * @param off The index of the first value.
+	 * @param len The number of values.
+	 */
+	public void add(double xs[], int off, int len) {
+		for (int i = off; i < off + len; i++) {
+			add(xs[i]);
+		}
+	}
+
+	/**
+	 * Adds everything another sketch has seen.
+	 *
+	 * @param other The sketch to merge in.
+	 */
+	public void merge(QuantileSketch other) {
+		if (other.count == 0) {
+			return;
+		}
+		for (int h = 0; h < other.levelCount; h++) {
+			while (levelCount <= h) {
+				addLevel();
+			}
+			for (int i = 0; i < other.sizes[h]; i++) {
+				append(h, other.levels[h][i]);
+			}
+		}
+		count += other.count;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		compress();
+	}
+
+	/**
+	 * Removes every value.
+	 */
+	public void clear() {
+		levels = new double[1][k];
+		sizes = new int[1];
+		levelCount = 1;
+		count = 0;
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+		coin = 0; //a cleared sketch compacts exactly like a new one
+	}
+
+	/**
+	 * Gets the number of values seen.
+	 *
+	 * @return The number of values.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the number of values the sketch is holding.
+	 *
+	 * @return The number of retained values.
+	 */
+	public int getRetained() {
+		int retained = 0;
+		for (int h = 0; h < levelCount; h++) {
+			retained += sizes[h];
+		}
+		return retained;
+	}
+
+	/**
+	 * Estimates a quantile.
+	 *
+	 * @param q The quantile, from 0 to 1.
+	 * @return The estimated value at that quantile, or NaN if the sketch is empty.
+	 */
+	public double getQuantile(double q) {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		if (q <= 0.0) {
+			return min;
+		}
+		if (q >= 1.0) {
+			return max;
+		}
+		//sort each level, then walk them in value order with a merge, summing weights
+		int heads[] = new int[levelCount];
+		for (int h = 0; h < levelCount; h++) {
+			Arrays.sort(levels[h], 0, sizes[h]);
+		}
+		double target = q * count;
+		long weight = 0;
+		while (true) {
+			int best = -1;
+			for (int h = 0; h < levelCount; h++) {
+				if (heads[h] < sizes[h] && (best < 0 || levels[h][heads[h]] < levels[best][heads[best]])) {
+					best = h;
+				}
+			}
+			if (best < 0) {
+				return max;
+			}
+			weight += 1L << best;
+			if (weight >= target) {
+				return levels[best][heads[best]];
+			}
+			heads[best]++;
+		}
+	}
+
+	/**
+	 * Writes the complete state, including the coin, so readFrom() restores a sketch that goes on
+	 * exactly as this one would.
+	 */
+	void writeTo(DataOutput out) throws IOException {
+		out.writeInt(k);
+		out.writeLong(count);
+		out.writeDouble(min);
+		out.writeDouble(max);
+		out.writeLong(coin);
+		out.writeInt(levelCount);
+		for (int h = 0; h < levelCount; h++) {
+			out.writeInt(sizes[h]);
+			for (int i = 0; i < sizes[h]; i++) {
+				out.writeDouble(levels[h][i]);
+			}
+		}
+	}
+
+	/**
+	 * Reads state written by writeTo().
+	 */
+	static QuantileSketch readFrom(DataInput in) throws IOException {
+		QuantileSketch sketch = new QuantileSketch(in.readInt());
+		sketch.count = in.readLong();
+		sketch.min = in.readDouble();
+		sketch.max = in.readDouble();
+		sketch.coin = in.readLong();
+		int levelCount = in.readInt();
+		for (int h = 0; h < levelCount; h++) {
+			if (h > 0) {
+				sketch.addLevel();
+			}
+			int size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				sketch.append(h, in.readDouble());
+			}
+		}
+		return sketch;
+	}
+
+	private int capacity(int h) {
+		int depth = levelCount - 1 - h;
+		return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(DECAY, depth)));
+	}
+
+	private void append(int h, double x) {
+		if (sizes[h] == levels[h].length) {
+			levels[h] = Arrays.copyOf(levels[h], levels[h].length * 2);
+		}
+		levels[h][sizes[h]++] = x;
+	}
+
+	private void addLevel() {
+		if (levelCount == levels.length) {
+			levels = Arrays.copyOf(levels, levels.length * 2);
+			sizes = Arrays.copyOf(sizes, sizes.length * 2);
+		}
+		levels[levelCount] = new double[MIN_CAPACITY];
+		sizes[levelCount] = 0;
+		levelCount++;
+	}
+
+	/**
+	 * Compacts full levels, lowest first, until every level fits its capacity.
+	 */
+	private void compress() {
+		for (int h = 0; h < levelCount; h++) {
+			if (sizes[h] >= capacity(h)) {
+				if (h + 1 == levelCount) {
+					addLevel();
+				}
+				compact(h);
+			}
+		}
+	}
+
+	/**
+	 * Sorts a level and moves every other item up, keeping one behind if the count is odd.
+	 */
+	private void compact(int h) {
+		double level[] = levels[h];
+		int n = sizes[h];
+		Arrays.sort(level, 0, n);
+		int odd = n & 1;
+		coin += GOLDEN_GAMMA;
+		int offset = (int) (SplitMixRandom.mix64(coin) & 1L);
+		for (int i = odd + offset; i < n; i += 2) {
+			append(h + 1, level[i]);
+		}
+		sizes[h] = odd;
+	}
+}
\ No newline at end of file
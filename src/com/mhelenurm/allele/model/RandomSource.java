@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+/**
+ * This class acts as an interface for the random number generators used by the model. Instances are
+ * not thread-safe; each thread should own its own source.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public interface RandomSource {
+
+	/**
+	 * Gets the next 64 random bits.
+	 *
+	 * @return A uniformly distributed long.
+	 */
+	public long nextLong();
+
+	/**
+	 * Gets the next random double.
+	 *
+	 * @return A uniformly distributed double in [0, 1).
+	 */
+	public double nextDouble();
+
+	/**
+	 * Creates a new source whose stream does not overlap with this one.
+	 *
+	 * @return An independent random source.
+	 */
+	public RandomSource split();
+}
\ No newline at end of file
@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.util.logging.Logger;
+
+/**
+ * This class hands out per-thread random sources, so threads never share a generator.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class RandomSources {
+
+	private static final Logger LOG = Logger.getLogger(RandomSources.class.getName());
+	private static final SplitMixRandom SEEDER = new SplitMixRandom(SplitMixRandom.mix64(System.currentTimeMillis()) ^ SplitMixRandom.mix64(System.nanoTime()));
+	private static final ThreadLocal<RandomSource> LOCAL = new ThreadLocal<RandomSource>() {
+		@Override
+		protected RandomSource initialValue() {
+			synchronized (SEEDER) { //only taken once per thread
+				return SEEDER.split();
+			}
+		}
+	};
+
+	/**
+	 * Gets the random source owned by the calling thread. It is seeded from the clock, so runs
+	 * that need to be replayed should pass their own seeded source instead.
+	 *
+	 * @return The calling thread's random source.
+	 */
+	public static RandomSource current() {
+		return LOCAL.get();
+	}
+
+	private RandomSources() {
+	}
+}
\ No newline at end of file
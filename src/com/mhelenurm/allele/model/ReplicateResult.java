@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.util.logging.Logger;
+
+/**
+ * This class represents the final state of one finished multi-run replicate.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class ReplicateResult extends Object {
+
+	private static final Logger LOG = Logger.getLogger(ReplicateResult.class.getName());
+	private final double frequency;
+	private final double heterozygosity;
+	private final int absorptionGeneration;
+	private final int replicate;
+
+	/**
+	 * Initializes a ReplicateResult.
+	 *
+	 * @param frequency The final allele frequency.
+	 * @param heterozygosity The final heterozygosity.
+	 * @param absorptionGeneration The generation the allele was fixed or lost, or -1.
+	 */
+	public ReplicateResult(double frequency, double heterozygosity, int absorptionGeneration) {
+		this(-1, frequency, heterozygosity, absorptionGeneration);
+	}
+
+	/**
+	 * Initializes a ReplicateResult that knows its place in a batch.
+	 *
+	 * @param replicate The index of the replicate in its batch.
+	 * @param frequency The final allele frequency.
+	 * @param heterozygosity The final heterozygosity.
+	 * @param absorptionGeneration The generation the allele was fixed or lost, or -1.
+	 */
+	public ReplicateResult(int replicate, double frequency, double heterozygosity, int absorptionGeneration) {
+		this.replicate = replicate;
+		this.frequency = frequency;
+		this.heterozygosity = heterozygosity;
+		this.absorptionGeneration = absorptionGeneration;
+	}
+
+	/**
+	 * Gets the index of the replicate in its batch.
+	 *
+	 * @return The replicate index, or -1 if it is not known.
+	 */
+	public int getReplicate() {
+		return replicate;
+	}
+
+	/**
+	 * Gets the final allele frequency.
+	 *
+	 * @return The final allele frequency.
+	 */
+	public double getFrequency() {
+		return frequency;
+	}
+
+	/**
+	 * Gets the final heterozygosity.
+	 *
+	 * @return The final heterozygosity.
+	 */
+	public double getHeterozygosity() {
+		return heterozygosity;
+	}
+
+	/**
+	 * Gets the generation at which the allele was fixed or lost.
+	 *
+	 * @return The generation of absorption, or -1 if the allele is still segregating.
+	 */
+	public int getAbsorptionGeneration() {
+		return absorptionGeneration;
+	}
+
+	/**
+	 * Gets whether the allele was fixed.
+	 *
+	 * @return Whether the final frequency is 1.
+	 */
+	public boolean isFixed() {
+		return frequency == 1.0;
+	}
+
+	/**
+	 * Gets whether the allele was lost.
+	 *
+	 * @return Whether the final frequency is 0.
+	 */
+	public boolean isLost() {
+		return frequency == 0.0;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,184 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+/**
+ * This class summarizes the final frequencies and heterozygosities of many replicates: their mean,
+ * variance and range, and a quantile sketch of each. Memory does not grow with the number of
+ * replicates, and summaries kept by different threads can be merged.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class ReplicateSummary {
+
+	private static final Logger LOG = Logger.getLogger(ReplicateSummary.class.getName());
+	private final RunningStats frequencyStats;
+	private final RunningStats heterozygosityStats;
+	private final QuantileSketch frequencyQuantiles;
+	private final QuantileSketch heterozygosityQuantiles;
+
+	/**
+	 * Initializes an empty ReplicateSummary.
+	 */
+	public ReplicateSummary() {
+		frequencyStats = new RunningStats();
+		heterozygosityStats = new RunningStats();
+		frequencyQuantiles = new QuantileSketch();
+		heterozygosityQuantiles = new QuantileSketch();
+	}
+
+	private ReplicateSummary(RunningStats frequencyStats, RunningStats heterozygosityStats, QuantileSketch frequencyQuantiles, QuantileSketch heterozygosityQuantiles) {
+		this.frequencyStats = frequencyStats;
+		this.heterozygosityStats = heterozygosityStats;
+		this.frequencyQuantiles = frequencyQuantiles;
+		this.heterozygosityQuantiles = heterozygosityQuantiles;
+	}
+
+	/**
+	 * Initializes a ReplicateSummary with the same contents as another.
+	 *
+	 * @param other The summary to copy.
+	 */
+	public ReplicateSummary(ReplicateSummary other) {
+		frequencyStats = new RunningStats(other.frequencyStats);
+		heterozygosityStats = new RunningStats(other.heterozygosityStats);
+		frequencyQuantiles = new QuantileSketch(other.frequencyQuantiles);
+		heterozygosityQuantiles = new QuantileSketch(other.heterozygosityQuantiles);
+	}
+
+	/**
+	 * Adds the outcome of one replicate.
+	 *
+	 * @param result The finished replicate.
+	 */
+	public void add(ReplicateResult result) {
+		add(result.getFrequency(), result.getHeterozygosity());
+	}
+
+	/**
+	 * Adds the outcome of one replicate.
+	 *
+	 * @param frequency The final allele frequency.
+	 * @param heterozygosity The final heterozygosity.
+	 */
+	public void add(double frequency, double heterozygosity) {
+		frequencyStats.add(frequency);
+		heterozygosityStats.add(heterozygosity);
+		frequencyQuantiles.add(frequency);
+		heterozygosityQuantiles.add(heterozygosity);
+	}
+
+	/**
+	 * Adds the outcomes of a run of replicates.
+	 *
+	 * @param frequencies The final allele frequencies.
+	 * @param heterozygosities The final heterozygosities.
+	 * @param off The index of the first replicate.
+	 * @param len The number of replicates.
+	 */
+	public void add(double frequencies[], double heterozygosities[], int off, int len) {
+		frequencyStats.add(frequencies, off, len);
+		heterozygosityStats.add(heterozygosities, off, len);
+		frequencyQuantiles.add(frequencies, off, len);
+		heterozygosityQuantiles.add(heterozygosities, off, len);
+	}
+
+	/**
+	 * Adds everything another summary has seen.
+	 *
+	 * @param other The summary to merge in.
+	 */
+	public void merge(ReplicateSummary other) {
+		frequencyStats.merge(other.frequencyStats);
+		heterozygosityStats.merge(other.heterozygosityStats);
+		frequencyQuantiles.merge(other.frequencyQuantiles);
+		heterozygosityQuantiles.merge(other.heterozygosityQuantiles);
+	}
+
+	/**
+	 * Writes the complete state, so readFrom() can restore it exactly.
+	 */
+	void writeTo(DataOutput out) throws IOException {
+		frequencyStats.writeTo(out);
+		heterozygosityStats.writeTo(out);
+		frequencyQuantiles.writeTo(out);
+		heterozygosityQuantiles.writeTo(out);
+	}
+
+	/**
+	 * Reads state written by writeTo().
+	 */
+	static ReplicateSummary readFrom(DataInput in) throws IOException {
+		return new ReplicateSummary(RunningStats.readFrom(in), RunningStats.readFrom(in), QuantileSketch.readFrom(in), QuantileSketch.readFrom(in));
+	}
+
+	/**
+	 * Removes every replicate.
+	 */
+	public void clear() {
+		frequencyStats.clear();
+		heterozygosityStats.clear();
+		frequencyQuantiles.clear();
+		heterozygosityQuantiles.clear();
+	}
+
+	/**
+	 * Gets the number of replicates.
+	 *
+	 * @return The number of replicates.
+	 */
+	public long getCount() {
+		return frequencyStats.getCount();
+	}
+
+	/**
+	 * Gets the statistics of the final frequencies.
+	 *
+	 * @return The frequency statistics.
+	 */
+	public RunningStats getFrequencyStats() {
+		return frequencyStats;
+	}
+
+	/**
+	 * Gets the statistics of the final heterozygosities.
+	 *
+	 * @return The heterozygosity statistics.
+	 */
+	public RunningStats getHeterozygosityStats() {
+		return heterozygosityStats;
+	}
+
+	/**
+	 * Gets the quantile sketch of the final frequencies.
+	 *
+	 * @return The frequency quantiles.
+	 */
+	public QuantileSketch getFrequencyQuantiles() {
+		return frequencyQuantiles;
+	}
+
+	/**
+	 * Gets the quantile sketch of the final heterozygosities.
+	 *
+	 * @return The heterozygosity quantiles.
+	 */
+	public QuantileSketch getHeterozygosityQuantiles() {
+		return heterozygosityQuantiles;
+	}
+}
\ No newline at end of file
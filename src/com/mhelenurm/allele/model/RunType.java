@@ -25,5 +25,9 @@ public enum RunType {
 	/**
 	 * Represents a multi-run run type.
 	 */
-	MULTI_RUN
+	MULTI_RUN,
+	/**
+	 * Represents an exact-distribution run type.
+	 */
+	EXACT_DISTRIBUTION
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+/**
+ * This class accumulates the count, mean, variance and range of a stream of values in constant
+ * memory. Values are added with Welford's update, and two accumulators are combined with Chan's
+ * pairwise formula, so each worker thread can keep its own and merge them at the end.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class RunningStats {
+
+	private static final Logger LOG = Logger.getLogger(RunningStats.class.getName());
+	private long count;
+	private double mean;
+	private double m2; //sum of squared differences from the mean
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Initializes an empty RunningStats.
+	 */
+	public RunningStats() {
+	}
+
+	/**
+	 * Initializes a RunningStats with the same contents as another.
+	 *
+	 * @param other The accumulator to copy.
+	 */
+	public RunningStats(RunningStats other) {
+		count = other.count;
+		mean = other.mean;
+		m2 = other.m2;
+		min = other.min;
+		max = other.max;
+	}
+
+	/**
+	 * Adds a value.
+	 *
+	 * @param x The value.
+	 */
+	public void add(double x) {
+		count++;
+		double delta = x - mean;
+		mean += delta / count;
+		m2 += delta * (x - mean);
+		if (x < min) {
+			min = x;
+		}
+		if (x > max) {
+			max = x;
+		}
+	}
+
+	/**
+	 * Adds a run of values from an array.
+	 *
+	 * @param xs The array of values.
+	 * @param off The index of the first value.
+	 * @param len The number of values.
+	 */
+	public void add(double xs[], int off, int len) {
+		for (int i = off; i < off + len; i++) {
+			add(xs[i]);
+		}
+	}
+
+	/**
+	 * Adds everything another accumulator has seen.
+	 *
+	 * @param other The accumulator to merge in.
+	 */
+	public void merge(RunningStats other) {
+		if (other.count == 0) {
+			return;
+		}
+		if (count == 0) {
+			count = other.count;
+			mean = other.mean;
+			m2 = other.m2;
+			min = other.min;
+			max = other.max;
+			return;
+		}
+		long n = count + other.count;
+		double delta = other.mean - mean;
+		mean += delta * other.count / n;
+		m2 += other.m2 + delta * delta * ((double) count * (double) other.count / n);
+		count = n;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Removes every value.
+	 */
+	public void clear() {
+		count = 0;
+		mean = 0.0;
+		m2 = 0.0;
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Writes the complete state, so readFrom() can restore it exactly.
+	 */
+	void writeTo(DataOutput out) throws IOException {
+		out.writeLong(count);
+		out.writeDouble(mean);
+		out.writeDouble(m2);
+		out.writeDouble(min);
+		out.writeDouble(max);
+	}
+
+	/**
+	 * Reads state written by writeTo().
+	 */
+	static RunningStats readFrom(DataInput in) throws IOException {
+		RunningStats stats = new RunningStats();
+		stats.count = in.readLong();
+		stats.mean = in.readDouble();
+		stats.m2 = in.readDouble();
+		stats.min = in.readDouble();
+		stats.max = in.readDouble();
+		return stats;
+	}
+
+	/**
+	 * Gets the number of values.
+	 *
+	 * @return The number of values.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the mean of the values.
+	 *
+	 * @return The mean, or NaN if there are none.
+	 */
+	public double getMean() {
+		return (count == 0) ? Double.NaN : mean;
+	}
+
+	/**
+	 * Gets the sample variance of the values.
+	 *
+	 * @return The variance, or NaN if there are fewer than two.
+	 */
+	public double getVariance() {
+		return (count < 2) ? Double.NaN : m2 / (count - 1);
+	}
+
+	/**
+	 * Gets the sample standard deviation of the values.
+	 *
+	 * @return The standard deviation, or NaN if there are fewer than two.
+	 */
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * Gets the smallest value.
+	 *
+	 * @return The minimum, or NaN if there are none.
+	 */
+	public double getMin() {
+		return (count == 0) ? Double.NaN : min;
+	}
+
+	/**
+	 * Gets the largest value.
+	 *
+	 * @return The maximum, or NaN if there are none.
+	 */
+	public double getMax() {
+		return (count == 0) ? Double.NaN : max;
+	}
+}
\ No newline at end of file
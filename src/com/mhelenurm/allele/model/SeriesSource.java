@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+/**
+ * This interface describes a read-only series of points, indexed in the order they were added.
+ * Graphs and exporters read through it, so they do not care whether the points live on the heap
+ * or in a mapped file.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public interface SeriesSource {
+
+	/**
+	 * Gets the number of points.
+	 *
+	 * @return The number of points.
+	 */
+	public int size();
+
+	/**
+	 * Gets the x value of a point.
+	 *
+	 * @param i The index of the point.
+	 * @return The x value.
+	 */
+	public double getX(int i);
+
+	/**
+	 * Gets the y value of a point.
+	 *
+	 * @param i The index of the point.
+	 * @return The y value.
+	 */
+	public double getY(int i);
+}
\ No newline at end of file
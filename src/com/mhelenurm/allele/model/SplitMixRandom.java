@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.util.logging.Logger;
+
+/**
+ * This class is a SplitMix64 random source. It produces the same streams as
+ * java.util.SplittableRandom for the same seed, and holds no locks.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class SplitMixRandom implements RandomSource {
+
+	private static final Logger LOG = Logger.getLogger(SplitMixRandom.class.getName());
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+	private long seed;
+	private final long gamma;
+	private final long origin; //the seed the stream started from, so draws can be counted from the state
+
+	/**
+	 * Initializes SplitMixRandom.
+	 *
+	 * @param seed The seed of the stream.
+	 */
+	public SplitMixRandom(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	private SplitMixRandom(long seed, long gamma) {
+		this.seed = seed;
+		this.gamma = gamma;
+		origin = seed;
+	}
+
+	@Override
+	public long nextLong() {
+		return mix64(seed += gamma);
+	}
+
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * DOUBLE_UNIT;
+	}
+
+	@Override
+	public SplitMixRandom split() {
+		return new SplitMixRandom(nextLong(), mixGamma(seed += gamma));
+	}
+
+	/**
+	 * Gets the number of 64 bit values drawn from this source, splits included. The state advances
+	 * by gamma on every draw and gamma is odd, so the count is the distance travelled times the
+	 * inverse of gamma modulo 2^64, and nothing has to be counted as the numbers are drawn.
+	 *
+	 * @return The number of draws.
+	 */
+	public long getDraws() {
+		long inverse = gamma; //Newton's iteration doubles the correct low bits each step: 3, 6, ..., 96
+		for (int i = 0; i < 5; i++) {
+			inverse *= 2 - gamma * inverse;
+		}
+		return (seed - origin) * inverse;
+	}
+
+	/**
+	 * Gets the substream of one replicate of a batch. The stream is what split() would give from a
+	 * generator at a state derived from the seed and the index, so it depends on nothing else and
+	 * any replicate can be regenerated on its own.
+	 *
+	 * @param seed The seed of the batch.
+	 * @param index The index of the replicate in the batch.
+	 * @return A new random source for the replicate.
+	 */
+	public static SplitMixRandom substream(long seed, long index) {
+		long z = seed ^ mix64(index + GOLDEN_GAMMA);
+		return new SplitMixRandom(mix64(z + GOLDEN_GAMMA), mixGamma(z + 2 * GOLDEN_GAMMA));
+	}
+
+	/**
+	 * Scrambles a 64 bit value with the SplitMix64 finalizer.
+	 *
+	 * @param z The value to scramble.
+	 * @return The scrambled value.
+	 */
+	static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.util.logging.Logger;
+
+/**
+ * This class holds the parameters and the summarized outcome of one cell of a parameter sweep:
+ * the replicates run for one population size, initial frequency and number of generations.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class SweepCell {
+
+	private static final Logger LOG = Logger.getLogger(SweepCell.class.getName());
+	private final int index;
+	private final int population;
+	private final double frequency;
+	private final int generations;
+	private final int replicates;
+	private final long seed;
+	private final AbsorptionStats absorption;
+	private final ReplicateSummary summary;
+
+	/**
+	 * Initializes a SweepCell.
+	 *
+	 * @param index The position of the cell in the sweep's grid.
+	 * @param population The population size.
+	 * @param frequency The initial frequency of the allele.
+	 * @param generations The number of generations each replicate runs for.
+	 * @param replicates The number of replicates.
+	 * @param seed The seed the cell's random streams are derived from.
+	 * @param absorption The fixation and loss statistics of the replicates.
+	 * @param summary The frequency and heterozygosity summary of the replicates.
+	 */
+	public SweepCell(int index, int population, double frequency, int generations, int replicates, long seed,
+			AbsorptionStats absorption, ReplicateSummary summary) {
+		this.index = index;
+		this.population = population;
+		this.frequency = frequency;
+		this.generations = generations;
+		this.replicates = replicates;
+		this.seed = seed;
+		this.absorption = absorption;
+		this.summary = summary;
+	}
+
+	/**
+	 * Gets the position of the cell in the sweep's grid, with frequencies varying fastest, then
+	 * generations, then population sizes.
+	 *
+	 * @return The index of the cell.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Gets the population size.
+	 *
+	 * @return The population size.
+	 */
+	public int getPopulation() {
+		return population;
+	}
+
+	/**
+	 * Gets the initial frequency of the allele.
+	 *
+	 * @return The initial frequency.
+	 */
+	public double getFrequency() {
+		return frequency;
+	}
+
+	/**
+	 * Gets the number of generations each replicate runs for.
+	 *
+	 * @return The number of generations.
+	 */
+	public int getGenerations() {
+		return generations;
+	}
+
+	/**
+	 * Gets the number of replicates.
+	 *
+	 * @return The number of replicates.
+	 */
+	public int getReplicates() {
+		return replicates;
+	}
+
+	/**
+	 * Gets the seed the cell's random streams are derived from. A plain batch with these parameters
+	 * and this seed gives the same replicates.
+	 *
+	 * @return The seed.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Gets the fixation and loss statistics.
+	 *
+	 * @return The absorption statistics.
+	 */
+	public AbsorptionStats getAbsorption() {
+		return absorption;
+	}
+
+	/**
+	 * Gets the frequency and heterozygosity summary.
+	 *
+	 * @return The summary.
+	 */
+	public ReplicateSummary getSummary() {
+		return summary;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,211 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.logging.Logger;
+
+/**
+ * This class streams trajectories back out of the binary format written by TrajectoryWriter. Series
+ * are visited with nextSeries() and their points with next(), one at a time, so a file of any size
+ * can be read in constant memory.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class TrajectoryReader implements Closeable {
+
+	private static final Logger LOG = Logger.getLogger(TrajectoryReader.class.getName());
+	private static final int BUFFER_SIZE = 1 << 16;
+	private final InputStream in;
+	private final byte buffer[] = new byte[BUFFER_SIZE];
+	private int position;
+	private int limit;
+	private final String name;
+	private boolean inSeries;
+	private boolean finished;
+	private int seriesId;
+	private long denominator;
+	private long x;
+	private long numerator;
+	private double y;
+
+	/**
+	 * Initializes a TrajectoryReader and reads the header.
+	 *
+	 * @param in The stream to read from.
+	 * @throws IOException If the stream fails or is not in the format.
+	 */
+	public TrajectoryReader(InputStream in) throws IOException {
+		this.in = in;
+		for (byte b : TrajectoryWriter.MAGIC) {
+			if (readByte() != b) {
+				throw new IOException("Not an allele trajectory file");
+			}
+		}
+		long version = readVarint();
+		if (version != TrajectoryWriter.VERSION) {
+			throw new IOException("Unsupported trajectory file version " + version);
+		}
+		int length = (int) readVarint();
+		byte bytes[] = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = readByte();
+		}
+		name = new String(bytes, Charset.forName("UTF-8"));
+	}
+
+	/**
+	 * Gets the name of the object that was exported.
+	 *
+	 * @return The export name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Moves to the next series, skipping whatever is left of the current one.
+	 *
+	 * @return Whether there is another series.
+	 * @throws IOException If the stream fails or is not in the format.
+	 */
+	public boolean nextSeries() throws IOException {
+		while (inSeries) {
+			next();
+		}
+		if (finished) {
+			return false;
+		}
+		long tag = readVarint();
+		if (tag == 0) {
+			finished = true;
+			return false;
+		}
+		if (tag != 1) {
+			throw new IOException("Corrupt trajectory file");
+		}
+		seriesId = (int) readVarint();
+		denominator = readVarint();
+		x = 0;
+		numerator = 0;
+		inSeries = true;
+		return true;
+	}
+
+	/**
+	 * Moves to the next point of the current series.
+	 *
+	 * @return Whether there is another point.
+	 * @throws IOException If the stream fails or is not in the format.
+	 */
+	public boolean next() throws IOException {
+		if (!inSeries) {
+			return false;
+		}
+		long dx = readVarint();
+		if (dx == 0) {
+			inSeries = false;
+			return false;
+		}
+		x += unzigzag(dx - 1);
+		if (denominator == 0) {
+			long bits = 0;
+			for (int i = 0; i < 8; i++) {
+				bits = (bits << 8) | (readByte() & 0xFF);
+			}
+			y = Double.longBitsToDouble(bits);
+		} else {
+			numerator += unzigzag(readVarint());
+			y = (double) numerator / (double) denominator;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the id of the current series.
+	 *
+	 * @return The series id.
+	 */
+	public int getSeriesId() {
+		return seriesId;
+	}
+
+	/**
+	 * Gets the resolution of the current series' y values.
+	 *
+	 * @return The denominator, or 0 if the y values are stored exactly.
+	 */
+	public long getDenominator() {
+		return denominator;
+	}
+
+	/**
+	 * Gets the x value of the current point.
+	 *
+	 * @return The x value.
+	 */
+	public long getX() {
+		return x;
+	}
+
+	/**
+	 * Gets the y value of the current point.
+	 *
+	 * @return The y value.
+	 */
+	public double getY() {
+		return y;
+	}
+
+	/**
+	 * Closes the stream.
+	 *
+	 * @throws IOException If the stream fails.
+	 */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private static long unzigzag(long v) {
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	private byte readByte() throws IOException {
+		if (position == limit) {
+			limit = in.read(buffer, 0, buffer.length);
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				throw new EOFException("Truncated trajectory file");
+			}
+		}
+		return buffer[position++];
+	}
+
+	private long readVarint() throws IOException {
+		long v = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = readByte();
+			v |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return v;
+			}
+		}
+		throw new IOException("Corrupt trajectory file");
+	}
+}
\ No newline at end of file
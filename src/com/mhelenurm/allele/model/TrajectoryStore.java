@@ -0,0 +1,267 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * This class stores the trajectory of a single run (generation, frequency and heterozygosity) in a
+ * memory-mapped file. The file is mapped in fixed-size segments as it grows, and each segment
+ * holds the three columns one after another. Appending writes straight into the mapping and
+ * reading goes through views that index the mapping, so nothing is allocated per point and the
+ * heap footprint does not depend on the length of the run.
+ *
+ * One thread may append while others read. A point is written before the size that covers it is
+ * published, so readers always see complete points up to size(). The store may be closed while the
+ * appending thread is still running: close() waits for an append in progress, and later appends
+ * are refused, so the writer can notice and stop instead of failing on a closed channel.
+ *
+ * Files are deleted when their store is closed. The few that cannot be, because a platform keeps a
+ * mapped file until the mapping is collected, or because the store was never closed, are retried
+ * at later closes and once more by a single shutdown hook, so no per-file exit hooks pile up.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class TrajectoryStore implements Closeable {
+
+	private static final Logger LOG = Logger.getLogger(TrajectoryStore.class.getName());
+	private static final int SEGMENT_SHIFT = 20; //2^20 points per segment
+	private static final int SEGMENT_POINTS = 1 << SEGMENT_SHIFT;
+	private static final int SEGMENT_MASK = SEGMENT_POINTS - 1;
+	private static final long SEGMENT_BYTES = SEGMENT_POINTS * (4L + 8L + 8L);
+	private static final int FREQUENCY_OFFSET = SEGMENT_POINTS * 4; //byte offset of the frequency column
+	private static final int HETEROZYGOSITY_OFFSET = FREQUENCY_OFFSET + SEGMENT_POINTS * 8;
+	private static final Set<File> OPEN = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>()); //files of stores not closed yet
+	private static final Set<File> LEFTOVER = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>()); //closed, but not deleted yet
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread("allele-trajectory-cleanup") {
+			@Override
+			public void run() {
+				deleteAll(OPEN);
+				deleteAll(LEFTOVER);
+			}
+		});
+	}
+	private final File file;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private volatile ByteBuffer segments[] = new ByteBuffer[4];
+	private int segmentCount;
+	private volatile int size;
+	private boolean closed; //guarded by this
+	private final SeriesSource frequencies;
+	private final SeriesSource heterozygosities;
+
+	/**
+	 * Initializes a TrajectoryStore in the default temporary directory.
+	 *
+	 * @throws IOException If the file cannot be created.
+	 */
+	public TrajectoryStore() throws IOException {
+		this(null);
+	}
+
+	/**
+	 * Initializes a TrajectoryStore in a new file in a directory. The file is deleted when the store
+	 * is closed.
+	 *
+	 * @param directory The directory for the file, or null for the default temporary directory.
+	 * @throws IOException If the file cannot be created.
+	 */
+	public TrajectoryStore(File directory) throws IOException {
+		file = File.createTempFile("allele-trajectory", ".bin", directory);
+		OPEN.add(file);
+		raf = new RandomAccessFile(file, "rw");
+		channel = raf.getChannel();
+		frequencies = new Column(FREQUENCY_OFFSET);
+		heterozygosities = new Column(HETEROZYGOSITY_OFFSET);
+	}
+
+	/**
+	 * Appends one generation to the trajectory.
+	 *
+	 * @param generation The generation number.
+	 * @param frequency The allele frequency.
+	 * @param heterozygosity The heterozygosity.
+	 * @return False if the store has been closed, in which case nothing is appended.
+	 * @throws IOException If the file cannot grow.
+	 */
+	public synchronized boolean append(int generation, double frequency, double heterozygosity) throws IOException {
+		if (closed) {
+			return false;
+		}
+		int offset = size & SEGMENT_MASK;
+		if (offset == 0 && (size >>> SEGMENT_SHIFT) == segmentCount) {
+			map();
+		}
+		ByteBuffer segment = segments[size >>> SEGMENT_SHIFT];
+		segment.putInt(offset << 2, generation);
+		segment.putDouble(FREQUENCY_OFFSET + (offset << 3), frequency);
+		segment.putDouble(HETEROZYGOSITY_OFFSET + (offset << 3), heterozygosity);
+		size++;
+		return true;
+	}
+
+	private void map() throws IOException {
+		//mapping past the end of the file grows it
+		ByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentCount * SEGMENT_BYTES, SEGMENT_BYTES);
+		ByteBuffer grown[] = (segmentCount == segments.length) ? Arrays.copyOf(segments, segments.length * 2) : segments;
+		grown[segmentCount++] = segment.order(ByteOrder.nativeOrder());
+		segments = grown;
+	}
+
+	/**
+	 * Gets the number of generations stored.
+	 *
+	 * @return The number of generations.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets a stored generation number.
+	 *
+	 * @param i The index of the point.
+	 * @return The generation number.
+	 */
+	public int getGeneration(int i) {
+		return segments[i >>> SEGMENT_SHIFT].getInt((i & SEGMENT_MASK) << 2);
+	}
+
+	/**
+	 * Gets a stored allele frequency.
+	 *
+	 * @param i The index of the point.
+	 * @return The allele frequency.
+	 */
+	public double getFrequency(int i) {
+		return frequencies.getY(i);
+	}
+
+	/**
+	 * Gets a stored heterozygosity.
+	 *
+	 * @param i The index of the point.
+	 * @return The heterozygosity.
+	 */
+	public double getHeterozygosity(int i) {
+		return heterozygosities.getY(i);
+	}
+
+	/**
+	 * Gets a view of the frequency over generations. The view reads the mapping directly and sees
+	 * points appended after it was taken.
+	 *
+	 * @return The frequency series.
+	 */
+	public SeriesSource getFrequencySeries() {
+		return frequencies;
+	}
+
+	/**
+	 * Gets a view of the heterozygosity over generations. The view reads the mapping directly and
+	 * sees points appended after it was taken.
+	 *
+	 * @return The heterozygosity series.
+	 */
+	public SeriesSource getHeterozygositySeries() {
+		return heterozygosities;
+	}
+
+	/**
+	 * Gets the file that backs the store.
+	 *
+	 * @return The backing file.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Closes and deletes the file, after any append in progress. Views taken earlier must not be
+	 * read afterwards. Closing a closed store does nothing.
+	 *
+	 * @throws IOException If the file cannot be closed.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			channel.close();
+			raf.close();
+		} finally {
+			OPEN.remove(file);
+			deleteAll(LEFTOVER);
+			if (!file.delete()) {
+				LOG.fine("Trajectory file " + file + " is still mapped; it will be deleted later");
+				LEFTOVER.add(file);
+			}
+		}
+	}
+
+	/**
+	 * Deletes the files in a set, keeping only the ones that are still there.
+	 */
+	private static void deleteAll(Set<File> files) {
+		for (Iterator<File> it = files.iterator(); it.hasNext();) {
+			File f = it.next();
+			if (f.delete() || !f.exists()) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * A view of one double column against the generation column.
+	 */
+	private class Column implements SeriesSource {
+
+		private final int base;
+
+		Column(int base) {
+			this.base = base;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public double getX(int i) {
+			return getGeneration(i);
+		}
+
+		@Override
+		public double getY(int i) {
+			return segments[i >>> SEGMENT_SHIFT].getDouble(base + ((i & SEGMENT_MASK) << 3));
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,189 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.logging.Logger;
+
+/**
+ * This class streams trajectories to the compact binary format. The format is:
+ *
+ * <pre>
+ * header:  "ALTR", varint version, varint name length, UTF-8 name
+ * series:  varint 1, varint id, varint denominator
+ *          per point: varint zigzag(x - previous x) + 1, then the y value
+ *          varint 0 ends the series
+ * end:     varint 0
+ * </pre>
+ *
+ * X values are whole numbers, such as generations, and usually step by one, so most take a single
+ * byte. When a series has a denominator, each y is stored as the nearest whole number of
+ * 1/denominator (an allele count when the denominator is 2N) as a zigzag varint delta from the
+ * previous one; otherwise y is stored as its eight raw bytes.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class TrajectoryWriter implements Closeable {
+
+	private static final Logger LOG = Logger.getLogger(TrajectoryWriter.class.getName());
+	static final byte MAGIC[] = {'A', 'L', 'T', 'R'};
+	static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private final OutputStream out;
+	private final byte buffer[] = new byte[BUFFER_SIZE];
+	private int position;
+	private boolean inSeries;
+	private boolean finished;
+	private long denominator;
+	private long lastX;
+	private long lastNumerator;
+
+	/**
+	 * Initializes a TrajectoryWriter and writes the header.
+	 *
+	 * @param out The stream to write to.
+	 * @param name The name of the exported object.
+	 * @throws IOException If the stream fails.
+	 */
+	public TrajectoryWriter(OutputStream out, String name) throws IOException {
+		this.out = out;
+		for (byte b : MAGIC) {
+			buffer[position++] = b;
+		}
+		writeVarint(VERSION);
+		byte bytes[] = name.getBytes(Charset.forName("UTF-8"));
+		writeVarint(bytes.length);
+		for (byte b : bytes) {
+			ensure(1);
+			buffer[position++] = b;
+		}
+	}
+
+	/**
+	 * Starts a series. Points added until endSeries() belong to it.
+	 *
+	 * @param id The id of the series.
+	 * @param denominator The resolution of the y values, or 0 to store them exactly as doubles.
+	 * @throws IOException If the stream fails.
+	 */
+	public void beginSeries(int id, long denominator) throws IOException {
+		if (inSeries || finished) {
+			throw new IllegalStateException("A series is already open or the writer is finished");
+		}
+		if (id < 0 || denominator < 0) {
+			throw new IllegalArgumentException("The id and denominator must not be negative");
+		}
+		writeVarint(1);
+		writeVarint(id);
+		writeVarint(denominator);
+		this.denominator = denominator;
+		lastX = 0;
+		lastNumerator = 0;
+		inSeries = true;
+	}
+
+	/**
+	 * Adds a point to the open series.
+	 *
+	 * @param x The x value, usually a generation.
+	 * @param y The y value.
+	 * @throws IOException If the stream fails.
+	 */
+	public void add(long x, double y) throws IOException {
+		if (!inSeries) {
+			throw new IllegalStateException("No series is open");
+		}
+		ensure(20);
+		writeVarint(zigzag(x - lastX) + 1);
+		lastX = x;
+		if (denominator == 0) {
+			long bits = Double.doubleToRawLongBits(y);
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				buffer[position++] = (byte) (bits >>> shift);
+			}
+		} else {
+			long numerator = Math.round(y * denominator);
+			writeVarint(zigzag(numerator - lastNumerator));
+			lastNumerator = numerator;
+		}
+	}
+
+	/**
+	 * Ends the open series.
+	 *
+	 * @throws IOException If the stream fails.
+	 */
+	public void endSeries() throws IOException {
+		if (!inSeries) {
+			throw new IllegalStateException("No series is open");
+		}
+		writeVarint(0);
+		inSeries = false;
+	}
+
+	/**
+	 * Writes the end of the data and flushes it, without closing the stream.
+	 *
+	 * @throws IOException If the stream fails.
+	 */
+	public void finish() throws IOException {
+		if (finished) {
+			return;
+		}
+		if (inSeries) {
+			endSeries();
+		}
+		writeVarint(0);
+		finished = true;
+		out.write(buffer, 0, position);
+		position = 0;
+		out.flush();
+	}
+
+	/**
+	 * Finishes the data and closes the stream.
+	 *
+	 * @throws IOException If the stream fails.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			out.close();
+		}
+	}
+
+	private static long zigzag(long v) {
+		return (v << 1) ^ (v >> 63);
+	}
+
+	private void ensure(int bytes) throws IOException {
+		if (position + bytes > buffer.length) {
+			out.write(buffer, 0, position);
+			position = 0;
+		}
+	}
+
+	private void writeVarint(long v) throws IOException {
+		ensure(10);
+		while ((v & ~0x7FL) != 0) {
+			buffer[position++] = (byte) ((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		buffer[position++] = (byte) v;
+	}
+}
\ No newline at end of file
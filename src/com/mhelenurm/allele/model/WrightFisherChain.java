@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.util.logging.Logger;
+
+/**
+ * This class describes the Wright-Fisher Markov chain on the 2N + 1 allele counts of a population.
+ * Row i of the transition matrix is the Binomial(2N, i / 2N) distribution; rows are produced on
+ * demand and truncated where their tails fall below a tolerance, so the matrix is never stored.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class WrightFisherChain {
+
+	private static final Logger LOG = Logger.getLogger(WrightFisherChain.class.getName());
+	private final int population;
+	private final int copies; //2N
+	private final double tolerance;
+	private final double up[]; //(n - j) / (j + 1): pmf(j + 1) = pmf(j) * up[j] * p / q
+	private final double down[]; //j / (n - j + 1): pmf(j - 1) = pmf(j) * down[j] * q / p
+
+	/**
+	 * Initializes a WrightFisherChain.
+	 *
+	 * @param population The population size N.
+	 * @param tolerance The largest probability mass a row may drop from its tails.
+	 */
+	public WrightFisherChain(int population, double tolerance) {
+		this.population = population;
+		this.copies = 2 * population;
+		this.tolerance = tolerance;
+		up = new double[copies + 1];
+		down = new double[copies + 1];
+		for (int j = 0; j <= copies; j++) {
+			up[j] = (double) (copies - j) / (double) (j + 1);
+			down[j] = (double) j / (double) (copies - j + 1);
+		}
+	}
+
+	/**
+	 * Computes the truncated transition probabilities out of a state. The row is written to
+	 * out[lo..hi], where bounds receives {lo, hi}; entries outside that range are left alone. The
+	 * kept entries are scaled to sum to one, so the truncated tail mass is spread over the row.
+	 *
+	 * @param i The current allele count.
+	 * @param out The array that receives the probabilities, indexed by next allele count.
+	 * @param bounds The array that receives the first and last index written.
+	 * @return An upper bound on the probability mass that was in the truncated tails.
+	 */
+	public double row(int i, double out[], int bounds[]) {
+		final int n = copies;
+		if (i <= 0 || i >= n) {
+			int j = (i <= 0) ? 0 : n;
+			out[j] = 1.0;
+			bounds[0] = j;
+			bounds[1] = j;
+			return 0.0;
+		}
+		double p = (double) i / (double) n;
+		double q = 1.0 - p;
+		double pq = p / q;
+		double qp = q / p;
+		int mode = (int) Math.min(n, Math.floor((n + 1) * p));
+		//walk out from the mode with the pmf ratios, relative to pmf(mode) = 1
+		out[mode] = 1.0;
+		double kept = 1.0;
+		double tails = 0.0;
+		double half = tolerance * 0.5; //each tail may drop half of the tolerance
+
+		double v = 1.0;
+		int hi = mode;
+		while (hi < n) {
+			double r = up[hi] * pq;
+			if (r < 1.0 && v * r / (1.0 - r) < half * kept) {
+				tails += v * r / (1.0 - r); //ratios only shrink further out, so the tail is geometric at most
+				break;
+			}
+			v *= r;
+			out[++hi] = v;
+			kept += v;
+		}
+		v = 1.0;
+		int lo = mode;
+		while (lo > 0) {
+			double r = down[lo] * qp;
+			if (r < 1.0 && v * r / (1.0 - r) < half * kept) {
+				tails += v * r / (1.0 - r);
+				break;
+			}
+			v *= r;
+			out[--lo] = v;
+			kept += v;
+		}
+		double scale = 1.0 / kept;
+		for (int j = lo; j <= hi; j++) {
+			out[j] *= scale;
+		}
+		bounds[0] = lo;
+		bounds[1] = hi;
+		return tails * scale;
+	}
+
+	/**
+	 * Gets the population size N.
+	 *
+	 * @return The population size.
+	 */
+	public int getPopulation() {
+		return population;
+	}
+
+	/**
+	 * Gets the number of gene copies, 2N.
+	 *
+	 * @return The number of gene copies.
+	 */
+	public int getCopies() {
+		return copies;
+	}
+
+	/**
+	 * Gets the number of states, 2N + 1.
+	 *
+	 * @return The number of states.
+	 */
+	public int getStates() {
+		return copies + 1;
+	}
+
+	/**
+	 * Gets the largest mass a row may drop.
+	 *
+	 * @return The truncation tolerance.
+	 */
+	public double getTolerance() {
+		return tolerance;
+	}
+}
\ No newline at end of file
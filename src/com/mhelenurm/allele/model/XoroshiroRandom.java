@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.allele.model;
+
+import java.util.logging.Logger;
+
+/**
+ * This class is a xoroshiro128++ random source (Blackman and Vigna). It has a period of 2^128 - 1
+ * and holds no locks.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class XoroshiroRandom implements RandomSource {
+
+	private static final Logger LOG = Logger.getLogger(XoroshiroRandom.class.getName());
+	private static final long[] JUMP = {0x2bd7a6a6e99c2ddcL, 0x0992ccaf6a6fca05L}; //advances 2^64 steps
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+	private long s0;
+	private long s1;
+
+	/**
+	 * Initializes XoroshiroRandom. The state is filled from a SplitMix64 stream of the seed, as the
+	 * authors recommend.
+	 *
+	 * @param seed The seed of the stream.
+	 */
+	public XoroshiroRandom(long seed) {
+		SplitMixRandom seeder = new SplitMixRandom(seed);
+		s0 = seeder.nextLong();
+		s1 = seeder.nextLong();
+	}
+
+	private XoroshiroRandom(long s0, long s1) {
+		this.s0 = s0;
+		this.s1 = s1;
+	}
+
+	@Override
+	public long nextLong() {
+		final long a = s0;
+		long b = s1;
+		final long result = Long.rotateLeft(a + b, 17) + a;
+		b ^= a;
+		s0 = Long.rotateLeft(a, 49) ^ b ^ (b << 21);
+		s1 = Long.rotateLeft(b, 28);
+		return result;
+	}
+
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * DOUBLE_UNIT;
+	}
+
+	/**
+	 * Returns a copy of the current stream and jumps this source 2^64 steps ahead, so the two never
+	 * overlap.
+	 *
+	 * @return The split-off source.
+	 */
+	@Override
+	public XoroshiroRandom split() {
+		XoroshiroRandom copy = new XoroshiroRandom(s0, s1);
+		jump();
+		return copy;
+	}
+
+	/**
+	 * Advances the stream by 2^64 steps.
+	 */
+	public void jump() {
+		long j0 = 0;
+		long j1 = 0;
+		for (long word : JUMP) {
+			for (int b = 0; b < 64; b++) {
+				if ((word & (1L << b)) != 0) {
+					j0 ^= s0;
+					j1 ^= s1;
+				}
+				nextLong();
+			}
+		}
+		s0 = j0;
+		s1 = j1;
+	}
+}
\ No newline at end of file
@@ -10,6 +10,8 @@
  */
 package com.mhelenurm.gui;
 
+import com.mhelenurm.allele.metrics.Metrics;
+import com.mhelenurm.allele.metrics.PaintEvent;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
@@ -17,12 +19,15 @@ import java.awt.Graphics2D;
 import java.awt.geom.Area;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 import java.util.logging.Logger;
 import javax.swing.JPanel;
 
 /**
  * This class controls the display of a bubble who's filled area corresponds to the percent of the
- * input value.
+ * input value. The fill height for a level comes from a table of the inverse of the area function,
+ * interpolated linearly, and the bubble's outline is kept as images for the current size, so a
+ * paint allocates no geometry.
  *
  * @author Mark Helenurm <mhelenurm@gmail.com>
  * @version 1.0
@@ -32,8 +37,15 @@ public class MHBubble extends JPanel {
 
 	private static final long serialVersionUID = 31415679001L;
 	private static final Logger LOG = Logger.getLogger(MHBubble.class.getName());
+	private static final int DEFAULT_RESOLUTION = 1024; //levels between table entries: 1/1024
+	private static final double TABLE_TOLERANCE = 1e-12; //how exactly each table entry is solved
 	private double level;
 	private String title;
+	private double heights[]; //fill height for each level i / resolution
+	private transient BufferedImage face; //the background and the translucent bubble
+	private transient BufferedImage corners; //the background outside the bubble, clear inside
+	private Color faceColor; //the background the images were drawn with
+	private Font font;
 
 	/**
 	 * Initializes MHBubble.
@@ -44,6 +56,7 @@ public class MHBubble extends JPanel {
 	public MHBubble(double level, String title) {
 		this.level = level;
 		this.title = title;
+		setResolution(DEFAULT_RESOLUTION);
 	}
 
 	/**
@@ -108,54 +121,129 @@ public class MHBubble extends JPanel {
 	}
 
 	/**
-	 * Handles the drawing of the bubble.
-	 * @param g2 The graphics object to draw upon.
+	 * Sets how finely the fill height table is divided. The table has one entry per 1/resolution of
+	 * level, and heights in between are interpolated.
+	 *
+	 * @param resolution The number of intervals in the table.
 	 */
-	@Override
-	public void paintComponent(Graphics g2) {
-		g2.setFont(new Font(g2.getFont().getName(), Font.BOLD, 16));
-
-		Graphics2D g = (Graphics2D) g2;
-
-		Ellipse2D d = new Ellipse2D.Double(0, 0, getWidth(), getHeight());
-		Rectangle2D rect = new Rectangle2D.Double(0, 0, getWidth(), getHeight());
-		Area a = new Area(rect);
-		a.subtract(new Area(d));
-
-		g.clearRect(0, 0, getWidth(), getHeight());
-		Color c = getBackground().brighter();
-		g.setColor(new Color(c.getRed(), c.getGreen(), c.getBlue(), 200));
-		g.fillOval(0, 0, getWidth(), getHeight());
+	public void setResolution(int resolution) {
+		int n = Math.max(1, resolution);
+		double table[] = new double[n + 1];
+		for (int i = 0; i <= n; i++) {
+			table[i] = solveHeight((double) i / (double) n);
+		}
+		heights = table;
+	}
 
+	/**
+	 * Gets how finely the fill height table is divided.
+	 *
+	 * @return The number of intervals in the table.
+	 */
+	public int getResolution() {
+		return heights.length - 1;
+	}
 
-		double areafraction = level;
+	/**
+	 * Gets the fraction of the bubble's height that is filled to show a level.
+	 *
+	 * @param level The level, which is the fraction of the bubble's area that is filled.
+	 * @return The fill height, from 0 to 1.
+	 */
+	public double getFillHeight(double level) {
+		double table[] = heights;
+		int n = table.length - 1;
+		double position = Math.max(0.0, Math.min(1.0, level)) * n;
+		int i = Math.min((int) position, n - 1);
+		double t = position - i;
+		return table[i] + (table[i + 1] - table[i]) * t;
+	}
 
-		double lo = 0.0, hi = 1.0, mid = (lo + hi) / 2.0;
-		while (Math.abs(areaFunction(mid) - areafraction) > .001) {
-			mid = (hi + lo) / 2.0;
-			double newp = areaFunction(mid);
-			if (newp > areafraction) {
+	/**
+	 * Solves areaFunction(height) = area for the height by bisection.
+	 */
+	private static double solveHeight(double area) {
+		double lo = 0.0;
+		double hi = 1.0;
+		while (hi - lo > TABLE_TOLERANCE) {
+			double mid = (hi + lo) / 2.0;
+			if (areaFunction(mid) > area) {
 				hi = mid;
 			} else {
 				lo = mid;
 			}
 		}
-		double rectheightpercent = mid;
+		return (hi + lo) / 2.0;
+	}
 
-		g.setColor(Color.CYAN);
-		g.fillRect(0, (int) (getHeight() - (getHeight() * rectheightpercent)), getWidth(), getHeight());
+	/**
+	 * Draws the parts of the bubble that only change with its size or background: the background
+	 * with the translucent bubble, and the background outside the bubble that covers the fill.
+	 */
+	private void drawFace(int width, int height, Color background) {
+		face = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = face.createGraphics();
+		g.setColor(background);
+		g.fillRect(0, 0, width, height);
+		Color c = background.brighter();
+		g.setColor(new Color(c.getRed(), c.getGreen(), c.getBlue(), 200));
+		g.fillOval(0, 0, width, height);
+		g.dispose();
 
-		g.setColor(g.getBackground());
+		Area a = new Area(new Rectangle2D.Double(0, 0, width, height));
+		a.subtract(new Area(new Ellipse2D.Double(0, 0, width, height)));
+		corners = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		g = corners.createGraphics();
+		g.setColor(background);
 		g.fill(a);
+		g.dispose();
+		faceColor = background;
+	}
+
+	/**
+	 * Handles the drawing of the bubble.
+	 * @param g2 The graphics object to draw upon.
+	 */
+	@Override
+	public void paintComponent(Graphics g2) {
+		int width = getWidth();
+		int height = getHeight();
+		if (width <= 0 || height <= 0) {
+			return;
+		}
+		long start = Metrics.BUBBLE.start();
+		PaintEvent event = new PaintEvent();
+		event.begin();
+		if (font == null || !font.getName().equals(g2.getFont().getName())) {
+			font = new Font(g2.getFont().getName(), Font.BOLD, 16);
+		}
+		g2.setFont(font);
+
+		Graphics2D g = (Graphics2D) g2;
+		Color background = g.getBackground();
+		if (face == null || face.getWidth() != width || face.getHeight() != height || !background.equals(faceColor)) {
+			drawFace(width, height, background);
+		}
+
+		g.drawImage(face, 0, 0, null);
+		g.setColor(Color.CYAN);
+		g.fillRect(0, (int) (height - (height * getFillHeight(level))), width, height);
+		g.drawImage(corners, 0, 0, null);
 
 		String levelstr = String.format("%.3f", level);
 		g.setColor(Color.BLACK);
 		g.drawString(title, getWidth() / 2 - g.getFontMetrics().stringWidth(title) / 2, getHeight() / 2 - g.getFontMetrics().getHeight());
 		g.drawString(levelstr, getWidth() / 2 - g.getFontMetrics().stringWidth(levelstr) / 2, getHeight() / 2 + g.getFontMetrics().getHeight());
-
+		Metrics.BUBBLE.stop(start);
+		if (event.shouldCommit()) {
+			event.component = "MHBubble";
+			event.width = width;
+			event.height = height;
+			event.commit();
+		}
 	}
 
-	private double areaFunction(double level) //returns the percent of area under a circle for level height being filled
+	private static double areaFunction(double level) //returns the percent of area under a circle for level height being filled
 	{
 		double area;
 		if (level > .5) {
@@ -10,24 +10,38 @@
  */
 package com.mhelenurm.gui;
 
+import com.mhelenurm.allele.metrics.Metrics;
+import com.mhelenurm.allele.metrics.PaintEvent;
+import com.mhelenurm.allele.model.BinaryExport;
 import com.mhelenurm.allele.model.CSVExport;
 import com.mhelenurm.allele.model.DataPoint;
+import com.mhelenurm.allele.model.DataSeries;
+import com.mhelenurm.allele.model.SeriesSource;
+import com.mhelenurm.allele.model.TrajectoryReader;
+import com.mhelenurm.allele.model.TrajectoryWriter;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.util.logging.Logger;
 import javax.swing.JPanel;
 
 /**
- * This class handles the display of a graph.
+ * This class handles the display of a graph. A series with more points than the plot has pixel
+ * columns is drawn from a SeriesPyramid as one vertical run per column, from the smallest to the
+ * largest y of the points in it, so painting costs about the same for any length of series and
+ * any zoom.
  *
  * @author Mark Helenurm <mhelenurm@gmail.com>
  * @version 1.0
  * @since Jun 24, 2013
  */
-public class MHGraph extends JPanel implements CSVExport {
+public class MHGraph extends JPanel implements CSVExport, BinaryExport {
 
 	private static final long serialVersionUID = 31415678999L;
 	/**
@@ -45,8 +59,15 @@ public class MHGraph extends JPanel implements CSVExport {
 	private String xtitle, ytitle;
 	private String graphTitle;
 	private int mode;
-	private ArrayList<DataPoint> datapoints;
 	private final Color[] COLORS = new Color[]{Color.BLACK, Color.RED, Color.BLUE, Color.GREEN, Color.YELLOW.darker().darker(), Color.ORANGE, Color.GRAY, Color.CYAN, Color.MAGENTA, Color.PINK};
+	private static final int POINTS_PER_PIXEL = 2; //longer series are drawn a pixel column at a time
+	private DataSeries added[]; //the points added to each id
+	private SeriesSource series[]; //what is drawn for each id: its points, or an attached source
+	private SeriesPyramid pyramids[]; //the range summary of each id's series, made when first needed
+	private long denominators[]; //the resolution of each id's y values in binary exports, or 0
+	private transient BufferedImage buffer; //the axes and every point drawn so far
+	private int drawn[]; //the points of each id already in the buffer
+	private boolean stale = true; //whether the buffer has to be drawn from scratch
 
 	private MHGraph() {
 	}
@@ -78,8 +99,16 @@ public class MHGraph extends JPanel implements CSVExport {
 		this.ytitle = ytitle;
 		this.graphTitle = graphtitle;
 
-		datapoints = new ArrayList<DataPoint>((points.length == 0) ? points.length : 10);
-		datapoints.addAll(Arrays.asList(points));
+		added = new DataSeries[COLORS.length];
+		series = new SeriesSource[COLORS.length];
+		pyramids = new SeriesPyramid[COLORS.length];
+		drawn = new int[COLORS.length];
+		denominators = new long[COLORS.length];
+		for (int i = 0; i < series.length; i++) {
+			added[i] = new DataSeries();
+			series[i] = added[i];
+		}
+		addDataPoints(points);
 	}
 
 	/**
@@ -137,7 +166,55 @@ public class MHGraph extends JPanel implements CSVExport {
 	 * @param d The data point to add.
 	 */
 	public void addDataPoint(DataPoint d) {
-		datapoints.add(d);
+		addDataPoint(d.getX(), d.getY(), d.getId());
+	}
+
+	/**
+	 * Adds a data point to the graph without creating a DataPoint. Adding a point to an id that has
+	 * an attached source detaches it.
+	 *
+	 * @param x The x location of the data point.
+	 * @param y The y location of the data point.
+	 * @param id The id of the data point.
+	 */
+	public void addDataPoint(double x, double y, char id) {
+		if (id < series.length) {
+			if (series[id] != added[id]) {
+				series[id] = added[id];
+				pyramids[id] = null;
+				stale = true;
+			}
+			added[id].add(x, y);
+		}
+	}
+
+	/**
+	 * Draws an id from a series that is stored elsewhere, such as a TrajectoryStore, instead of
+	 * from added points. The graph reads the source when it paints and never copies it.
+	 *
+	 * @param id The id to draw the source as.
+	 * @param source The source, or null to go back to added points.
+	 */
+	public void setSeries(char id, SeriesSource source) {
+		if (id < series.length) {
+			added[id].clear();
+			series[id] = (source == null) ? added[id] : source;
+			pyramids[id] = null;
+			stale = true;
+		}
+	}
+
+	/**
+	 * Sets the resolution of an id's y values in binary exports. Values are stored as whole numbers
+	 * of 1/denominator, so a frequency with denominator 2N is stored as an allele count.
+	 *
+	 * @param id The id of the series.
+	 * @param denominator The denominator, or 0 to store the values exactly.
+	 */
+	public void setDenominator(char id, long denominator) {
+		if (id < denominators.length) {
+			denominators[id] = denominator;
+		}
 	}
 
 	/**
@@ -146,7 +223,9 @@ public class MHGraph extends JPanel implements CSVExport {
 	 * @param d The array of datapoints.
 	 */
 	public void addDataPoints(DataPoint d[]) {
-		datapoints.addAll(Arrays.asList(d));
+		for (DataPoint p : d) {
+			addDataPoint(p);
+		}
 	}
 
 	/**
@@ -165,6 +244,7 @@ public class MHGraph extends JPanel implements CSVExport {
 	 */
 	public void setXmin(double xmin) {
 		this.xmin = xmin;
+		stale = true;
 	}
 
 	/**
@@ -183,6 +263,7 @@ public class MHGraph extends JPanel implements CSVExport {
 	 */
 	public void setXmax(double xmax) {
 		this.xmax = xmax;
+		stale = true;
 	}
 
 	/**
@@ -201,6 +282,7 @@ public class MHGraph extends JPanel implements CSVExport {
 	 */
 	public void setYmin(double ymin) {
 		this.ymin = ymin;
+		stale = true;
 	}
 
 	/**
@@ -219,6 +301,7 @@ public class MHGraph extends JPanel implements CSVExport {
 	 */
 	public void setYmax(double ymax) {
 		this.ymax = ymax;
+		stale = true;
 	}
 
 	/**
@@ -237,6 +320,7 @@ public class MHGraph extends JPanel implements CSVExport {
 	 */
 	public void setXdivisions(int xdivisions) {
 		this.xdivisions = xdivisions;
+		stale = true;
 	}
 
 	/**
@@ -255,6 +339,7 @@ public class MHGraph extends JPanel implements CSVExport {
 	 */
 	public void setYdivisions(int ydivisions) {
 		this.ydivisions = ydivisions;
+		stale = true;
 	}
 
 	/**
@@ -273,6 +358,7 @@ public class MHGraph extends JPanel implements CSVExport {
 	 */
 	public void setXtitle(String xtitle) {
 		this.xtitle = xtitle;
+		stale = true;
 	}
 
 	/**
@@ -291,6 +377,7 @@ public class MHGraph extends JPanel implements CSVExport {
 	 */
 	public void setYtitle(String ytitle) {
 		this.ytitle = ytitle;
+		stale = true;
 	}
 
 	/**
@@ -309,6 +396,7 @@ public class MHGraph extends JPanel implements CSVExport {
 	 */
 	public void setGraphtitle(String graphtitle) {
 		this.graphTitle = graphtitle;
+		stale = true;
 	}
 
 	/**
@@ -327,6 +415,7 @@ public class MHGraph extends JPanel implements CSVExport {
 	 */
 	public void setMode(int mode) {
 		this.mode = mode;
+		stale = true;
 	}
 
 	/**
@@ -336,24 +425,82 @@ public class MHGraph extends JPanel implements CSVExport {
 	 */
 	public void clearPoints(int mode) {
 		if (mode == -1) {
-			datapoints.clear();
-		} else {
-			for (int i = datapoints.size() - 1; i >= 0; i--) {
-				if (datapoints.get(i).getId() == mode) {
-					datapoints.remove(i);
-				}
+			for (int i = 0; i < series.length; i++) {
+				added[i].clear();
+				series[i] = added[i];
+				pyramids[i] = null;
 			}
+			stale = true;
+		} else if (mode >= 0 && mode < series.length) {
+			added[mode].clear();
+			series[mode] = added[mode];
+			pyramids[mode] = null;
+			stale = true;
 		}
 	}
 
 	/**
-	 * Handles the drawing of the graph component.
+	 * Handles the drawing of the graph component. The axes and the points plotted so far are kept
+	 * in an off-screen image, so a repaint only draws the points added since the last one and copies
+	 * the image. Changing the axes, the mode or the series redraws the image from scratch.
 	 *
 	 * @param g The graphics object to be drawn on.
 	 */
 	@Override
 	public void paintComponent(Graphics g) {
+		int width = getWidth();
+		int height = getHeight();
+		if (width <= 0 || height <= 0) {
+			return;
+		}
+		long start = Metrics.GRAPH.start();
+		PaintEvent event = new PaintEvent();
+		event.begin();
+		for (int i = 0; i < series.length; i++) {
+			stale |= series[i].size() < drawn[i]; //a series that shrank has to be drawn again
+		}
+		if (buffer == null || buffer.getWidth() != width || buffer.getHeight() != height) {
+			buffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			stale = true;
+		}
+		Graphics2D b = buffer.createGraphics();
+		try {
+			if (stale) {
+				b.setFont(g.getFont());
+				paintAxes(b);
+				for (int i = 0; i < drawn.length; i++) {
+					drawn[i] = 0;
+				}
+				stale = false;
+			}
+			for (int i = 0; i < series.length; i++) {
+				int n = series[i].size();
+				if (n > drawn[i]) {
+					b.setColor(COLORS[i]);
+					//start at the last point drawn, so a line picks up where it stopped
+					paintSeries(b, i, Math.max(0, drawn[i] - 1));
+					drawn[i] = n;
+				}
+			}
+		} finally {
+			b.dispose();
+		}
+		g.drawImage(buffer, 0, 0, null);
+		Metrics.GRAPH.stop(start);
+		if (event.shouldCommit()) {
+			event.component = "MHGraph";
+			event.width = width;
+			event.height = height;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Clears the image and draws the axes, ticks, labels and titles.
+	 */
+	private void paintAxes(Graphics2D g) {
 		setBackground(Color.WHITE);
+		g.setBackground(Color.WHITE);
 		g.clearRect(0, 0, getWidth(), getHeight());
 
 		double marginx = .15 * (double) getWidth();
@@ -400,33 +547,40 @@ public class MHGraph extends JPanel implements CSVExport {
 			}
 			g.drawString(label, (int) (xheight1 - g.getFontMetrics().stringWidth(label) * 1.1), yheight + g.getFontMetrics().getAscent() / 2);
 		}
-		//lines are drawn in
-
-		//TEXT DRAWN HERE!!
-
-		if (mode == GRAPH_LINE) {
-			for (int i = 0; i < 10; i++) {
-				g.setColor(COLORS[i]);
-				int lastx = -1;
-				int lasty = -1;
-				for (DataPoint p : datapoints) {
-					if (p.getX() >= xmin && p.getX() <= xmax && p.getY() >= ymin && p.getY() <= ymax && p.getId() == i) {
-						int xcoord = (int) (marginx + graphwidth * (p.getX() - xmin) / (xmax - xmin));
-						int ycoord = (int) (getHeight() - (marginy + graphheight * (p.getY() - ymin) / (ymax - ymin)));
-						if (lastx != -1 && lasty != -1) {
-							g.drawLine(lastx, lasty, xcoord, ycoord);
-						}
-						lastx = xcoord;
-						lasty = ycoord;
+	}
+
+	/**
+	 * Draws the points of one id from an index on.
+	 */
+	private void paintSeries(Graphics g, int id, int from) {
+		double marginx = .15 * (double) getWidth();
+		double marginy = .15 * (double) getHeight();
+		double graphheight = .7 * (double) getHeight();
+		double graphwidth = .7 * (double) getWidth();
+		double tickradius = .01 * (double) getWidth();
+		SeriesSource s = series[id];
+		int n = s.size();
+		SeriesPyramid pyramid = pyramid(id, n - from, graphwidth);
+		if (pyramid != null) {
+			paintColumns(g, pyramid, from, marginx, marginy, graphwidth, graphheight, tickradius);
+			return;
+		}
+		int step = stride(n - from, graphwidth);
+		int lastx = -1;
+		int lasty = -1;
+		for (int j = from; j < n; j = next(j, step, n)) {
+			double px = s.getX(j);
+			double py = s.getY(j);
+			if (px >= xmin && px <= xmax && py >= ymin && py <= ymax) {
+				int xcoord = (int) (marginx + graphwidth * (px - xmin) / (xmax - xmin));
+				int ycoord = (int) (getHeight() - (marginy + graphheight * (py - ymin) / (ymax - ymin)));
+				if (mode == GRAPH_LINE) {
+					if (lastx != -1 && lasty != -1) {
+						g.drawLine(lastx, lasty, xcoord, ycoord);
 					}
-				}
-			}
-		} else if (mode == GRAPH_POINTS) {
-			for (DataPoint p : datapoints) {
-				if (p.getX() >= xmin && p.getX() <= xmax && p.getY() >= ymin && p.getY() <= ymax) {
-					int xcoord = (int) (marginx + graphwidth * (p.getX() - xmin) / (xmax - xmin));
-					int ycoord = (int) (getHeight() - (marginy + graphheight * (p.getY() - ymin) / (ymax - ymin)));
-					g.setColor(COLORS[p.getId()]);
+					lastx = xcoord;
+					lasty = ycoord;
+				} else if (mode == GRAPH_POINTS) {
 					g.drawLine(xcoord + (int) tickradius / 2, ycoord + (int) tickradius / 2, xcoord - (int) tickradius / 2, ycoord - (int) tickradius / 2);
 					g.drawLine(xcoord + (int) tickradius / 2, ycoord - (int) tickradius / 2, xcoord - (int) tickradius / 2, ycoord + (int) tickradius / 2);
 				}
@@ -434,33 +588,170 @@ public class MHGraph extends JPanel implements CSVExport {
 		}
 	}
 
+	/**
+	 * Paints a sorted series one pixel column at a time. Each column is drawn as the run from the
+	 * smallest to the largest y of its points; lines also join each column's last point to the next
+	 * column's first. Values outside the y axis are drawn at its edge.
+	 */
+	private void paintColumns(Graphics g, SeriesPyramid pyramid, int start, double marginx, double marginy, double graphwidth, double graphheight, double tickradius) {
+		SeriesSource s = pyramid.getSource();
+		double span = xmax - xmin;
+		int from = pyramid.lowerBound(xmin, start, s.size());
+		int end = pyramid.lowerBound(Math.nextUp(xmax), from, s.size());
+		int left = (int) marginx;
+		int right = (int) (marginx + graphwidth);
+		int mark = (int) tickradius / 2;
+		double range[] = new double[2];
+		int lastx = -1;
+		int lasty = -1;
+		for (int column = left; column <= right && from < end; column++) {
+			//the first x value that falls in the next column
+			int to = (column == right) ? end : pyramid.lowerBound(xmin + (column + 1 - marginx) * span / graphwidth, from, end);
+			if (to <= from) {
+				continue;
+			}
+			pyramid.range(from, to, range);
+			int low = toY(range[0], marginy, graphheight);
+			int high = toY(range[1], marginy, graphheight);
+			if (mode == GRAPH_LINE) {
+				if (lastx != -1) {
+					g.drawLine(lastx, lasty, column, toY(s.getY(from), marginy, graphheight));
+				}
+				g.drawLine(column, low, column, high);
+				lastx = column;
+				lasty = toY(s.getY(to - 1), marginy, graphheight);
+			} else if (mode == GRAPH_POINTS) {
+				g.drawLine(column + mark, low + mark, column - mark, low - mark);
+				g.drawLine(column + mark, low - mark, column - mark, low + mark);
+				if (high != low) {
+					g.drawLine(column + mark, high + mark, column - mark, high - mark);
+					g.drawLine(column + mark, high - mark, column - mark, high + mark);
+				}
+			}
+			from = to;
+		}
+	}
+
+	private int toY(double y, double marginy, double graphheight) {
+		double clamped = Math.max(ymin, Math.min(ymax, y));
+		return (int) (getHeight() - (marginy + graphheight * (clamped - ymin) / (ymax - ymin)));
+	}
+
+	/**
+	 * Gets the up to date pyramid of an id if a run of its points should be painted a column at a
+	 * time, or null if the run is short enough, or the series unsorted, to be painted point by point.
+	 */
+	private SeriesPyramid pyramid(int id, int count, double graphwidth) {
+		if (count <= graphwidth * POINTS_PER_PIXEL) {
+			return null;
+		}
+		if (pyramids[id] == null) {
+			pyramids[id] = new SeriesPyramid(series[id]);
+		}
+		pyramids[id].update();
+		return (pyramids[id].isSorted()) ? pyramids[id] : null;
+	}
+
+	/**
+	 * Gets how many points to advance between drawn points, so a series that is not sorted by x
+	 * never draws much more than a few points per pixel.
+	 */
+	private static int stride(int n, double graphwidth) {
+		return Math.max(1, n / Math.max(1, (int) graphwidth * POINTS_PER_PIXEL));
+	}
+
+	/**
+	 * Gets the next index to draw. The last point is always drawn.
+	 */
+	private static int next(int j, int step, int n) {
+		return (j + step >= n && j != n - 1) ? n - 1 : j + step;
+	}
+
 	@Override
 	public String getExportName() {
 		return graphTitle;
 	}
 
 	@Override
-	public StringBuilder exportCSV() {
-		StringBuilder ss = new StringBuilder(1024);
-		final StringBuilder ln = new StringBuilder("\n");
-		for (int i = 0; i < 10; i++) {
-			StringBuilder linex = new StringBuilder(128);
-			StringBuilder liney = new StringBuilder(128);
-			linex.append("type ").append(i).append(" x");
-			liney.append("type ").append(i).append(" y");
-			boolean hasData = false;
-			for (DataPoint p : datapoints) {
-				if (p.getId() == i) {
-					hasData = true;
-					linex.append(",").append(p.getX());
-					liney.append(",").append(p.getY());
+	public void exportCSV(Writer out) throws IOException {
+		for (int i = 0; i < series.length; i++) {
+			SeriesSource s = series[i];
+			int n = s.size();
+			if (n == 0) {
+				continue;
+			}
+			out.write("type " + i + " x");
+			for (int j = 0; j < n; j++) {
+				out.write(',');
+				out.write(Double.toString(s.getX(j)));
+			}
+			out.write('\n');
+			out.write("type " + i + " y");
+			for (int j = 0; j < n; j++) {
+				out.write(',');
+				out.write(Double.toString(s.getY(j)));
+			}
+			out.write('\n');
+		}
+	}
+
+	/**
+	 * Exports every non-empty series. X values are written as whole numbers, so a series with any
+	 * other x value is refused rather than rounded; export it as CSV instead.
+	 *
+	 * @param out The stream that receives the data.
+	 * @throws IOException If the stream fails or a series has an x value that is not a whole number.
+	 */
+	@Override
+	public void exportBinary(OutputStream out) throws IOException {
+		TrajectoryWriter writer = new TrajectoryWriter(out, graphTitle);
+		for (int i = 0; i < series.length; i++) {
+			SeriesSource s = series[i];
+			int n = s.size();
+			if (n == 0) {
+				continue;
+			}
+			writer.beginSeries(i, denominators[i]);
+			for (int j = 0; j < n; j++) {
+				double x = s.getX(j);
+				long whole = (long) x;
+				if (whole != x) {
+					throw new IOException("Series " + i + " has x value " + x + ", which the binary format cannot hold");
 				}
+				writer.add(whole, s.getY(j));
+			}
+			writer.endSeries();
+		}
+		writer.finish();
+	}
+
+	/**
+	 * Replaces the series that are in the data with its points. Other ids are left alone. An id drawn
+	 * from a source set with setSeries belongs to whoever set it, so it has to be detached first.
+	 *
+	 * @param in The stream to read.
+	 * @throws IOException If the stream fails or is not in the format.
+	 * @throws IllegalStateException If an id in the data is still drawn from a source.
+	 */
+	@Override
+	public void importBinary(InputStream in) throws IOException {
+		TrajectoryReader reader = new TrajectoryReader(in);
+		while (reader.nextSeries()) {
+			int id = reader.getSeriesId();
+			if (id >= series.length) {
+				continue;
+			}
+			if (series[id] != added[id]) {
+				throw new IllegalStateException("Series " + id + " is drawn from a source the graph does not own");
 			}
-			if (hasData) {
-				ss.append(linex).append(ln);
-				ss.append(liney).append(ln);
+			added[id].clear();
+			pyramids[id] = null;
+			stale = true;
+			denominators[id] = reader.getDenominator();
+			while (reader.next()) {
+				added[id].add(reader.getX(), reader.getY());
 			}
 		}
-		return ss;
+		repaint();
 	}
-}
+}
\ No newline at end of file
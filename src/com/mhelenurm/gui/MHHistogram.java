@@ -10,10 +10,16 @@
  */
 package com.mhelenurm.gui;
 
+import com.mhelenurm.allele.metrics.HistogramFlushEvent;
+import com.mhelenurm.allele.metrics.Metrics;
+import com.mhelenurm.allele.metrics.PaintEvent;
 import com.mhelenurm.allele.model.CSVExport;
+import com.mhelenurm.allele.model.HistogramBins;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.logging.Logger;
 import javax.swing.JPanel;
 
@@ -38,6 +44,8 @@ public class MHHistogram extends JPanel implements CSVExport {
 	private String axisTitle;
 	private boolean lowerBoundSeparate;
 	private boolean upperBoundSeparate;
+	private HistogramBins bins;
+	private int maxcount; //largest bin count, kept up to date by addData
 
 	private MHHistogram() {
 	}
@@ -62,6 +70,10 @@ public class MHHistogram extends JPanel implements CSVExport {
 		this.axisTitle = axisTitle;
 		this.counts = counts;
 		this.total = 0;
+		for (int i = 0; i < divisions; i++) {
+			maxcount = Math.max(maxcount, counts[i]);
+		}
+		updateBins();
 	}
 
 	/**
@@ -139,6 +151,7 @@ public class MHHistogram extends JPanel implements CSVExport {
 	 */
 	public void setLowerBoundSeparate(boolean b) {
 		lowerBoundSeparate = b;
+		updateBins();
 	}
 
 	/**
@@ -148,6 +161,7 @@ public class MHHistogram extends JPanel implements CSVExport {
 	 */
 	public void setUpperBoundSeparate(boolean b) {
 		upperBoundSeparate = b;
+		updateBins();
 	}
 
 	/**
@@ -231,41 +245,96 @@ public class MHHistogram extends JPanel implements CSVExport {
 		return upperBoundSeparate;
 	}
 
+	/**
+	 * Gets the binning of the histogram, for feeding a ConcurrentHistogram that is later merged
+	 * with addCounts.
+	 *
+	 * @return The binning of the histogram.
+	 */
+	public HistogramBins getBins() {
+		return bins;
+	}
+
 	/**
 	 * Adds a piece of data to the histogram.
 	 *
 	 * @param data The piece of data to add.
 	 */
 	public void addData(double data) {
+		add(data);
+		Metrics.SIMULATION.addHistogramSamples(1);
+	}
+
+	private void add(double data) {
 		total++; //TAG
-		for (int i = 0; i < divisions; i++) {
-			if (counts[i] > (int) (.9 * (double) maxhits)) {
-				maxhits *= 2;
-				break;
-			}
+		if (maxcount > (int) (.9 * (double) maxhits)) {
+			maxhits *= 2;
 		}
 
-		if (data < minamount || data > maxamount) {
-			return;
+		int bin = bins.indexOf(data);
+		if (bin >= 0 && ++counts[bin] > maxcount) {
+			maxcount = counts[bin];
 		}
-		if (data == minamount && lowerBoundSeparate) {
-			counts[0]++;
-			return;
+	}
+
+	/**
+	 * Adds every piece of data in an array to the histogram.
+	 *
+	 * @param data The data to add.
+	 */
+	public void addData(double data[]) {
+		addData(data, 0, data.length);
+	}
+
+	/**
+	 * Adds a run of data from an array to the histogram.
+	 *
+	 * @param data The array of data.
+	 * @param off The index of the first piece of data.
+	 * @param len The number of pieces of data.
+	 */
+	public void addData(double data[], int off, int len) {
+		HistogramFlushEvent event = new HistogramFlushEvent();
+		event.begin();
+		for (int i = off; i < off + len; i++) {
+			add(data[i]);
 		}
-		if (data == maxamount && upperBoundSeparate) {
-			counts[divisions - 1]++;
-			return;
+		Metrics.SIMULATION.addHistogramSamples(len);
+		if (event.shouldCommit()) {
+			event.histogram = graphTitle;
+			event.samples = len;
+			event.commit();
 		}
-		int seps = ((lowerBoundSeparate) ? 1 : 0) + ((upperBoundSeparate) ? 1 : 0);
-		for (int i = 0; i < divisions - seps; i++) {
+	}
 
-			double upperbound = minamount + (maxamount - minamount) * ((double) (i + 1) / (double) (divisions - seps));
-			if (data <= upperbound) {
-				counts[i + ((lowerBoundSeparate) ? 1 : 0)]++;
-				return;
-			}
+	/**
+	 * Adds counts that were binned elsewhere, such as by a ConcurrentHistogram with the same
+	 * binning.
+	 *
+	 * @param hits The number of hits to add to each bin.
+	 * @param samples The number of samples the hits came from, including out-of-range ones.
+	 */
+	public void addCounts(long hits[], long samples) {
+		HistogramFlushEvent event = new HistogramFlushEvent();
+		event.begin();
+		for (int i = 0; i < divisions; i++) {
+			counts[i] += (int) hits[i];
+			maxcount = Math.max(maxcount, counts[i]);
+		}
+		total += samples;
+		Metrics.SIMULATION.addHistogramSamples(samples);
+		while (maxcount > (int) (.9 * (double) maxhits)) {
+			maxhits *= 2;
 		}
+		if (event.shouldCommit()) {
+			event.histogram = graphTitle;
+			event.samples = samples;
+			event.commit();
+		}
+	}
 
+	private void updateBins() {
+		bins = new HistogramBins(minamount, maxamount, divisions, lowerBoundSeparate, upperBoundSeparate);
 	}
 
 	/**
@@ -275,6 +344,9 @@ public class MHHistogram extends JPanel implements CSVExport {
 	 */
 	@Override
 	public void paintComponent(Graphics g) {
+		long start = Metrics.HISTOGRAM.start();
+		PaintEvent event = new PaintEvent();
+		event.begin();
 		g.clearRect(0, 0, getWidth(), getHeight());
 		g.setColor(Color.BLACK);
 
@@ -340,6 +412,13 @@ public class MHHistogram extends JPanel implements CSVExport {
 				g.drawString(percentlabel, (int) (topleftx + barwidth + tickradius), (int) (toplefty + barheight / 2.0)); //TAG
 			} //TAG
 		}
+		Metrics.HISTOGRAM.stop(start);
+		if (event.shouldCommit()) {
+			event.component = "MHHistogram";
+			event.width = getWidth();
+			event.height = getHeight();
+			event.commit();
+		}
 	}
 
 	/**
@@ -350,28 +429,26 @@ public class MHHistogram extends JPanel implements CSVExport {
 			counts[i] = 0;
 		}
 		total = 0;
+		maxcount = 0;
 	}
 
 	@Override
-	public StringBuilder exportCSV() {
-		StringBuilder ss = new StringBuilder((divisions * 5));
-		final StringBuilder ln = new StringBuilder("\n");
-		ss.append(axisTitle).append(",").append("hits").append(ln);
+	public void exportCSV(Writer out) throws IOException {
+		out.write(axisTitle + ",hits\n");
 		for (int i = 0; i < divisions; i++) {
 			int seps = ((lowerBoundSeparate) ? 1 : 0) + ((upperBoundSeparate) ? 1 : 0);
 			double lowerbound = minamount + (maxamount - minamount) * ((double) (i + ((lowerBoundSeparate) ? -1 : 0)) / (double) (divisions - seps));
 			double upperbound = minamount + (maxamount - minamount) * ((double) (i + 1 + ((lowerBoundSeparate) ? -1 : 0)) / (double) (divisions - seps));
 
 			if (i == 0 && lowerBoundSeparate) {
-				ss.append(minamount);
+				out.write(Double.toString(minamount));
 			} else if (i == divisions - 1 && upperBoundSeparate) {
-				ss.append(maxamount);
+				out.write(Double.toString(maxamount));
 			} else {
-				ss.append(lowerbound).append(" - ").append(upperbound);
+				out.write(lowerbound + " - " + upperbound);
 			}
-			ss.append(",").append(counts[i]).append(ln);
+			out.write("," + counts[i] + "\n");
 		}
-		return ss;
 	}
 
 	@Override
@@ -0,0 +1,208 @@
+/*
+ * Copyright © 2013 Mark Helenurm
+ * 
+ * This code is copyrighted by Mark Helenurm.
+ * Do not steal this code under the threat of legal
+ * prosecution.
+ * 
+ * If you have suggestions, comments, or requests to
+ * borrow code, email me at <mhelenurm@gmail.com>
+ */
+package com.mhelenurm.gui;
+
+import com.mhelenurm.allele.model.SeriesSource;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * This class keeps the minimum and maximum y of a series over blocks of points at several
+ * resolutions, so the range of any run of points is found from a few blocks instead of every
+ * point. The finest blocks hold 64 points and each level up merges 4 blocks of the one below, so
+ * all the levels together take under a quarter of a byte per point. The levels only grow as
+ * points are appended, so a series that is still being recorded is cheap to keep up to date.
+ *
+ * Ranges are kept as floats, since they only place pixels.
+ *
+ * @author Mark Helenurm <mhelenurm@gmail.com>
+ * @version 1.0
+ * @since Jun 24, 2013
+ */
+public class SeriesPyramid {
+
+	private static final Logger LOG = Logger.getLogger(SeriesPyramid.class.getName());
+	private static final int LEAF = 64; //points in a block of the finest level
+	private static final int FANOUT = 4; //blocks of a level merged into one block of the next
+	private static final int INITIAL_BLOCKS = 16;
+	private final SeriesSource source;
+	private float mins[][] = new float[0][];
+	private float maxes[][] = new float[0][];
+	private int counts[] = new int[0]; //complete blocks in each level
+	private int checked; //points whose x order has been checked
+	private boolean sorted = true;
+
+	/**
+	 * Initializes a SeriesPyramid. Nothing is computed until update() is called.
+	 *
+	 * @param source The series to summarize.
+	 */
+	public SeriesPyramid(SeriesSource source) {
+		this.source = source;
+	}
+
+	/**
+	 * Gets the series this pyramid summarizes.
+	 *
+	 * @return The series.
+	 */
+	public SeriesSource getSource() {
+		return source;
+	}
+
+	/**
+	 * Brings the pyramid up to date with points appended to the series since the last update. A
+	 * series that got shorter is summarized again from the start.
+	 */
+	public void update() {
+		int n = source.size();
+		if (n < checked) {
+			mins = new float[0][];
+			maxes = new float[0][];
+			counts = new int[0];
+			checked = 0;
+			sorted = true;
+		}
+		for (int i = Math.max(checked, 1); i < n && sorted; i++) {
+			sorted = source.getX(i) >= source.getX(i - 1);
+		}
+		checked = n;
+		if (!sorted) {
+			return; //ranges of index runs are no use when x does not increase
+		}
+		if (n / LEAF > 0) {
+			ensureLevel(0);
+		}
+		while (counts.length > 0 && (counts[0] + 1) * (long) LEAF <= n) {
+			int start = counts[0] * LEAF;
+			double lo = Double.POSITIVE_INFINITY;
+			double hi = Double.NEGATIVE_INFINITY;
+			for (int i = start; i < start + LEAF; i++) {
+				double y = source.getY(i);
+				lo = Math.min(lo, y);
+				hi = Math.max(hi, y);
+			}
+			append(0, (float) lo, (float) hi);
+		}
+		for (int level = 1; level <= counts.length && counts[level - 1] >= FANOUT; level++) {
+			ensureLevel(level);
+			float below[] = mins[level - 1];
+			float belowMax[] = maxes[level - 1];
+			while ((counts[level] + 1) * FANOUT <= counts[level - 1]) {
+				int start = counts[level] * FANOUT;
+				float lo = below[start];
+				float hi = belowMax[start];
+				for (int b = start + 1; b < start + FANOUT; b++) {
+					lo = Math.min(lo, below[b]);
+					hi = Math.max(hi, belowMax[b]);
+				}
+				append(level, lo, hi);
+			}
+		}
+	}
+
+	private void ensureLevel(int level) {
+		if (level < counts.length) {
+			return;
+		}
+		mins = Arrays.copyOf(mins, level + 1);
+		maxes = Arrays.copyOf(maxes, level + 1);
+		counts = Arrays.copyOf(counts, level + 1);
+		mins[level] = new float[INITIAL_BLOCKS];
+		maxes[level] = new float[INITIAL_BLOCKS];
+	}
+
+	private void append(int level, float lo, float hi) {
+		int c = counts[level];
+		if (c == mins[level].length) {
+			mins[level] = Arrays.copyOf(mins[level], c * 2);
+			maxes[level] = Arrays.copyOf(maxes[level], c * 2);
+		}
+		mins[level][c] = lo;
+		maxes[level][c] = hi;
+		counts[level] = c + 1;
+	}
+
+	/**
+	 * Gets whether the x values of the series never decrease, as of the last update. Only then can
+	 * the pyramid answer ranges of x.
+	 *
+	 * @return Whether the series is sorted by x.
+	 */
+	public boolean isSorted() {
+		return sorted;
+	}
+
+	/**
+	 * Finds the first point at or after an x value, searching a sorted series.
+	 *
+	 * @param x The x value.
+	 * @param from The first index to consider.
+	 * @param to One past the last index to consider.
+	 * @return The index of the first point in [from, to) with an x value of at least x, or to.
+	 */
+	public int lowerBound(double x, int from, int to) {
+		int lo = from;
+		int hi = to;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (source.getX(mid) < x) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Finds the smallest and largest y values of a run of points. Points past the last update are
+	 * read from the series directly.
+	 *
+	 * @param from The index of the first point.
+	 * @param to One past the index of the last point.
+	 * @param range Receives the minimum in [0] and the maximum in [1].
+	 */
+	public void range(int from, int to, double range[]) {
+		double lo = Double.POSITIVE_INFINITY;
+		double hi = Double.NEGATIVE_INFINITY;
+		int i = from;
+		while (i < to) {
+			int level = counts.length - 1;
+			long size = blockSize(level);
+			while (level >= 0 && (i % size != 0 || i + size > to || i / size >= counts[level])) {
+				size /= (level == 0) ? LEAF : FANOUT;
+				level--;
+			}
+			if (level < 0) {
+				double y = source.getY(i);
+				lo = Math.min(lo, y);
+				hi = Math.max(hi, y);
+				i++;
+			} else {
+				int b = (int) (i / size);
+				lo = Math.min(lo, mins[level][b]);
+				hi = Math.max(hi, maxes[level][b]);
+				i += size;
+			}
+		}
+		range[0] = lo;
+		range[1] = hi;
+	}
+
+	private static long blockSize(int level) {
+		long size = LEAF;
+		for (int l = 0; l < level; l++) {
+			size *= FANOUT;
+		}
+		return size;
+	}
+}
\ No newline at end of file